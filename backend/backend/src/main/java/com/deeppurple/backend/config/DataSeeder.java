@@ -3,70 +3,94 @@ package com.deeppurple.backend.config;
 
 import com.deeppurple.backend.entity.EmotionCategory;
 import com.deeppurple.backend.entity.Model;
-import com.deeppurple.backend.entity.WordEmotionAssociation;
+import com.deeppurple.backend.lexicon.BinaryLexicon;
 import com.deeppurple.backend.repository.EmotionCategoryRepository;
 import com.deeppurple.backend.repository.ModelRepository;
 import com.deeppurple.backend.repository.WordEmotionAssociationRepository;
+import com.deeppurple.backend.repository.WordEmotionAssociationRepositoryCustom.NewAssociation;
 import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-
-
-import java.io.IOException;
-import java.util.Map;
-
+/**
+ * Seeds the predefined models on first boot, one transaction per model and all models in parallel.
+ * <p>
+ * Each model's emotion categories are saved first and resolved by ordinal from memory; its word associations then
+ * go to the database as JDBC batch inserts rather than one save (and one category lookup) per word.
+ */
 @Component
 public class DataSeeder {
-
-    @Value("classpath:lexicon_nrc.json")
-    private Resource nrcLexiconFile;
-
-    @Value("classpath:lexicon_finance.json")
-    private Resource financeLexiconFile;
-
-    @Value("classpath:lexicon_social.json")
-    private Resource socialLexiconFile;
+    private static final Logger logger = LoggerFactory.getLogger(DataSeeder.class);
 
     private final ModelRepository modelRepository;
     private final EmotionCategoryRepository emotionCategoryRepository;
     private final WordEmotionAssociationRepository wordRepository;
-    private final ObjectMapper objectMapper;
+    private final PredefinedLexicons predefinedLexicons;
+    private final TransactionTemplate transactionTemplate;
 
     public DataSeeder(ModelRepository modelRepository,
                       EmotionCategoryRepository emotionCategoryRepository,
                       WordEmotionAssociationRepository wordRepository,
-                      ObjectMapper objectMapper) {
+                      PredefinedLexicons predefinedLexicons,
+                      PlatformTransactionManager transactionManager) {
         this.modelRepository = modelRepository;
         this.emotionCategoryRepository = emotionCategoryRepository;
         this.wordRepository = wordRepository;
-        this.objectMapper = objectMapper;
+        this.predefinedLexicons = predefinedLexicons;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @PostConstruct
-    public void init() throws IOException {
-        if (modelRepository.count() == 0) {
-            seedModelFromJson("GeneralModel", nrcLexiconFile);
-            seedModelFromJson("FinanceModel", financeLexiconFile);
-            seedModelFromJson("SocialModel", socialLexiconFile);
+    public void init() {
+        if (modelRepository.count() != 0) {
+            return;
         }
+        long started = System.currentTimeMillis();
+        Integer rows = Flux.fromIterable(predefinedLexicons.all().entrySet())
+                .flatMap(entry -> Mono.fromCallable(() -> transactionTemplate.execute(status -> seedModel(entry.getKey(), entry.getValue())))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .reduce(0, Integer::sum)
+                .block();
+        logger.info("Seeded {} predefined models with {} word associations in {} ms",
+                predefinedLexicons.all().size(), rows, System.currentTimeMillis() - started);
     }
 
-    private void seedModelFromJson(String modelName, Resource lexiconFile) throws IOException {
-        Map<String, List<String>> lexiconData = objectMapper.readValue(lexiconFile.getInputStream(), Map.class);
+    // Returns the number of word associations inserted
+    private int seedModel(String modelName, BinaryLexicon lexicon) {
+        long started = System.currentTimeMillis();
         Model model = createModel(modelName, true, modelRepository);
 
-        lexiconData.forEach((word, emotions) -> {
-            emotions.forEach(emotion -> {
-                EmotionCategory category = findOrCreateEmotionCategory(model, emotion);
-                createWordEmotionAssociation(word, category);
-            });
+        // Category id by emotion ordinal
+        List<EmotionCategory> categories = new ArrayList<>();
+        for (String emotion : lexicon.emotions()) {
+            categories.add(createEmotionCategory(model, emotion));
+        }
+        long[] categoryIds = emotionCategoryRepository.saveAll(categories).stream()
+                .mapToLong(EmotionCategory::getId)
+                .toArray();
+
+        List<NewAssociation> associations = new ArrayList<>();
+        lexicon.forEach((word, ordinals) -> {
+            for (int ordinal : ordinals) {
+                associations.add(new NewAssociation(word, categoryIds[ordinal]));
+            }
         });
+        int inserted = 0;
+        for (boolean row : wordRepository.insertIgnoringExisting(associations, true, false)) {
+            inserted += row ? 1 : 0;
+        }
+        logger.info("Seeded model '{}': {} emotions, {} word associations in {} ms",
+                modelName, categoryIds.length, inserted, System.currentTimeMillis() - started);
+        return inserted;
     }
 
     private Model createModel(String name, boolean predefined, ModelRepository modelRepository) {
@@ -76,24 +100,12 @@ public class DataSeeder {
         return modelRepository.save(model);
     }
 
-    private EmotionCategory findOrCreateEmotionCategory(Model model, String emotion) {
-        EmotionCategory category = emotionCategoryRepository.findByModelAndEmotion(model, emotion);
-        if (category == null) {
-            category = new EmotionCategory();
-            category.setEmotion(emotion);
-            category.setPredefined(true);
-            category.setModel(model);
-            category.setWordEmotionAssociations(new ArrayList<>());
-            category = emotionCategoryRepository.save(category);
-        }
+    private EmotionCategory createEmotionCategory(Model model, String emotion) {
+        EmotionCategory category = new EmotionCategory();
+        category.setEmotion(emotion);
+        category.setPredefined(true);
+        category.setModel(model);
+        category.setWordEmotionAssociations(new ArrayList<>());
         return category;
     }
-
-    private void createWordEmotionAssociation(String word, EmotionCategory category) {
-        WordEmotionAssociation association = new WordEmotionAssociation();
-        association.setWord(word);
-        association.setPredefined(true);
-        association.setEmotionCategory(category);
-        wordRepository.save(association);
-    }
 }
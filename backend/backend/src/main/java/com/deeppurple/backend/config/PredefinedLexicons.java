@@ -0,0 +1,84 @@
+package com.deeppurple.backend.config;
+
+import com.deeppurple.backend.lexicon.BinaryLexicon;
+import com.deeppurple.backend.lexicon.LexiconCompiler;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Memory-mapped binary lexicons of the predefined models, compiled from the bundled JSON files at build time.
+ */
+@Component
+public class PredefinedLexicons {
+    private static final Logger logger = LoggerFactory.getLogger(PredefinedLexicons.class);
+
+    // Predefined model name -> lexicon resource base name
+    private static final List<Map.Entry<String, String>> SOURCES = List.of(
+            Map.entry("GeneralModel", "lexicon_nrc"),
+            Map.entry("FinanceModel", "lexicon_finance"),
+            Map.entry("SocialModel", "lexicon_social"));
+
+    private final ResourceLoader resourceLoader;
+    private final Map<String, BinaryLexicon> lexicons = new LinkedHashMap<>();
+
+    public PredefinedLexicons(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        for (Map.Entry<String, String> source : SOURCES) {
+            long started = System.currentTimeMillis();
+            BinaryLexicon lexicon = load(source.getValue());
+            lexicons.put(source.getKey(), lexicon);
+            logger.info("Mapped lexicon '{}' for model '{}': {} words in {} ms",
+                    source.getValue(), source.getKey(), lexicon.wordCount(), System.currentTimeMillis() - started);
+        }
+    }
+
+    public Map<String, BinaryLexicon> all() {
+        return Collections.unmodifiableMap(lexicons);
+    }
+
+    public Optional<BinaryLexicon> get(String modelName) {
+        return Optional.ofNullable(lexicons.get(modelName));
+    }
+
+    private BinaryLexicon load(String baseName) throws IOException {
+        Resource compiled = resourceLoader.getResource("classpath:" + baseName + ".bin");
+        if (compiled.exists() && compiled.isFile()) {
+            return BinaryLexicon.open(compiled.getFile().toPath());
+        }
+
+        // Inside a jar the resource cannot be mapped directly, so it is copied to a temp file first
+        Path file = Files.createTempFile(baseName, ".bin");
+        file.toFile().deleteOnExit();
+        if (compiled.exists()) {
+            try (InputStream in = compiled.getInputStream()) {
+                Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } else {
+            // Builds that skip the exec-maven-plugin step (e.g. IDE builds) only have the JSON
+            logger.warn("Compiled lexicon '{}.bin' not found, compiling from JSON", baseName);
+            try (InputStream in = resourceLoader.getResource("classpath:" + baseName + ".json").getInputStream()) {
+                Files.write(file, LexiconCompiler.compile(in));
+            }
+        }
+        return BinaryLexicon.open(file);
+    }
+}
@@ -0,0 +1,117 @@
+package com.deeppurple.backend.config;
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HTTP layer shared by the emotion analysis providers.
+ * <p>
+ * Each provider gets its own named connection pool and one long-lived {@link HttpClient}, so its TLS context
+ * (and with it the session cache used for resumption) is shared by every connection to that provider.
+ * Connections prefer HTTP/2 over ALPN and fall back to HTTP/1.1. Timeouts and pool sizes are read from
+ * {@code analysis.http.*}, overridable per provider under {@code analysis.http.providers.<name>.*}.
+ * Pools are pre-warmed once the application is ready so the first requests skip the DNS and TLS handshake.
+ */
+@Component
+public class ProviderHttpClients {
+    private static final Logger logger = LoggerFactory.getLogger(ProviderHttpClients.class);
+
+    public static final String OPENAI = "openai";
+    public static final String GEMINI = "gemini";
+    public static final String MISTRAL = "mistral";
+
+    private static final Map<String, String> BASE_URLS = Map.of(
+            OPENAI, "https://api.openai.com/v1",
+            GEMINI, "https://generativelanguage.googleapis.com",
+            MISTRAL, "https://api.mistral.ai");
+
+    private final Environment environment;
+    private final ProviderRateLimiter rateLimiter;
+    private final Map<String, ConnectionProvider> pools = new LinkedHashMap<>();
+    private final Map<String, HttpClient> clients = new LinkedHashMap<>();
+
+    public ProviderHttpClients(Environment environment, ProviderRateLimiter rateLimiter) {
+        this.environment = environment;
+        this.rateLimiter = rateLimiter;
+        for (String provider : BASE_URLS.keySet()) {
+            ConnectionProvider pool = ConnectionProvider.builder("provider-" + provider)
+                    .maxConnections(property(provider, "max-connections", Integer.class, 50))
+                    .pendingAcquireMaxCount(property(provider, "pending-acquire-max-count", Integer.class, 200))
+                    .pendingAcquireTimeout(property(provider, "pending-acquire-timeout", Duration.class, Duration.ofSeconds(5)))
+                    .maxIdleTime(property(provider, "max-idle-time", Duration.class, Duration.ofSeconds(60)))
+                    .maxLifeTime(property(provider, "max-life-time", Duration.class, Duration.ofMinutes(10)))
+                    .evictInBackground(Duration.ofSeconds(30))
+                    .build();
+            Duration connectTimeout = property(provider, "connect-timeout", Duration.class, Duration.ofSeconds(5));
+            HttpClient client = HttpClient.create(pool)
+                    .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    .secure(ssl -> ssl.sslContext(Http2SslContextSpec.forClient())
+                            .handshakeTimeout(connectTimeout))
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                    .option(ChannelOption.SO_KEEPALIVE, true)
+                    .responseTimeout(property(provider, "response-timeout", Duration.class, Duration.ofSeconds(15)));
+            pools.put(provider, pool);
+            clients.put(provider, client);
+        }
+    }
+
+    /**
+     * WebClient builder bound to the provider's base URL and connection pool, decoding JSON with {@link ProviderJson}
+     * and scheduling requests through the provider's {@link ProviderRateLimiter}; callers add their own headers.
+     */
+    public WebClient.Builder webClient(String provider) {
+        HttpClient client = clients.get(provider);
+        if (client == null) {
+            throw new IllegalArgumentException("Unknown provider: " + provider);
+        }
+        return WebClient.builder()
+                .baseUrl(BASE_URLS.get(provider))
+                .clientConnector(new ReactorClientHttpConnector(client))
+                .filter(rateLimiter.filter(provider))
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(ProviderJson.decoder()));
+    }
+
+    // Initializes the event loops, then opens (and returns to the pool) one connection per provider
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Flux.fromIterable(clients.entrySet())
+                .flatMap(entry -> entry.getValue().warmup()
+                        .then(entry.getValue().head()
+                                .uri(BASE_URLS.get(entry.getKey()))
+                                .response())
+                        .doOnSuccess(response -> logger.info("Warmed up connection pool for provider '{}'", entry.getKey()))
+                        .onErrorResume(error -> {
+                            logger.warn("Could not warm up provider '{}': {}", entry.getKey(), error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void close() {
+        pools.values().forEach(pool -> pool.disposeLater().block(Duration.ofSeconds(5)));
+    }
+
+    private <T> T property(String provider, String key, Class<T> type, T defaultValue) {
+        T shared = environment.getProperty("analysis.http." + key, type, defaultValue);
+        return environment.getProperty("analysis.http.providers." + provider + "." + key, type, shared);
+    }
+}
@@ -0,0 +1,150 @@
+package com.deeppurple.backend.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * JSON handling shared by the provider clients.
+ * <p>
+ * One mapper, configured once, decodes both the provider envelopes (straight from the response bytes) and the
+ * analysis JSON the models write. Model output is read leniently: unknown fields are ignored, trailing commas are
+ * accepted (the response format shown in the prompts has one) and numbers may be integers, quoted or suffixed with
+ * {@code %}. Markdown fences around the JSON are removed by {@link #stripFence}.
+ */
+public final class ProviderJson {
+    public static final JsonMapper MAPPER = JsonMapper.builder()
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA,
+                    JsonReadFeature.ALLOW_LEADING_PLUS_SIGN_FOR_NUMBERS,
+                    JsonReadFeature.ALLOW_LEADING_DECIMAL_POINT_FOR_NUMBERS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .addModule(new SimpleModule("lenient-numbers")
+                    .addDeserializer(Double.class, new LenientDoubleDeserializer(Double.class))
+                    .addDeserializer(double.class, new LenientDoubleDeserializer(double.class)))
+            .build();
+
+    public static final ObjectReader CHAT_COMPLETION = MAPPER.readerFor(ChatCompletion.class);
+    public static final ObjectReader GEMINI_RESPONSE = MAPPER.readerFor(GeminiResponse.class);
+
+    // OpenAI-compatible chat completion (OpenAI, Mistral); streamed chunks carry a delta instead of a message
+    public record ChatCompletion(List<Choice> choices) {
+        public record Choice(Message message, Message delta, @JsonProperty("finish_reason") String finishReason) {
+        }
+
+        public record Message(String content) {
+        }
+
+        public String content() {
+            if (choices == null || choices.isEmpty()) {
+                return "";
+            }
+            Message message = choices.get(0).message() != null ? choices.get(0).message() : choices.get(0).delta();
+            return message == null || message.content() == null ? "" : message.content();
+        }
+
+        /** Whether the answer was cut off by the token limit ({@code finish_reason} {@code length}). */
+        public boolean truncated() {
+            return choices != null && !choices.isEmpty() && "length".equals(choices.get(0).finishReason());
+        }
+    }
+
+    // Gemini generateContent response or streamGenerateContent chunk
+    public record GeminiResponse(List<Candidate> candidates) {
+        public record Candidate(Content content) {
+        }
+
+        public record Content(List<Part> parts) {
+        }
+
+        public record Part(String text) {
+        }
+
+        public String text() {
+            if (candidates == null || candidates.isEmpty() || candidates.get(0).content() == null) {
+                return "";
+            }
+            List<Part> parts = candidates.get(0).content().parts();
+            return parts == null || parts.isEmpty() || parts.get(0).text() == null ? "" : parts.get(0).text();
+        }
+    }
+
+    private ProviderJson() {
+    }
+
+    /** Decoder for WebClient codecs, so response bodies are read with this mapper. */
+    public static Jackson2JsonDecoder decoder() {
+        return new Jackson2JsonDecoder(MAPPER);
+    }
+
+    public static <T> T read(String json, Class<T> type) {
+        return read(json, MAPPER.readerFor(type));
+    }
+
+    public static <T> T read(String json, ObjectReader reader) {
+        try {
+            return reader.readValue(stripFence(json));
+        } catch (IOException e) {
+            throw new RuntimeException("Error parsing provider response: " + e.getMessage(), e);
+        }
+    }
+
+    // Removes a surrounding ```json ... ``` (or bare ```) fence
+    public static String stripFence(String text) {
+        String stripped = text.strip();
+        if (stripped.startsWith("```")) {
+            int lineEnd = stripped.indexOf('\n');
+            stripped = lineEnd < 0 ? stripped.substring(3) : stripped.substring(lineEnd + 1);
+        }
+        if (stripped.endsWith("```")) {
+            stripped = stripped.substring(0, stripped.length() - 3);
+        }
+        return stripped.strip();
+    }
+
+    /** Lenient number: integer or decimal, possibly quoted and suffixed with '%'. */
+    public static double parseLenient(String text) {
+        String number = text.strip();
+        if (number.endsWith("%")) {
+            number = number.substring(0, number.length() - 1).strip();
+        }
+        return number.isEmpty() ? 0.0 : Double.parseDouble(number);
+    }
+
+    private static final class LenientDoubleDeserializer extends StdScalarDeserializer<Double> {
+        private LenientDoubleDeserializer(Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        public Double deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return parser.getDoubleValue();
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                try {
+                    return parseLenient(parser.getText());
+                } catch (NumberFormatException e) {
+                    return (Double) context.handleWeirdStringValue(Double.class, parser.getText(), "not a number");
+                }
+            }
+            return (Double) context.handleUnexpectedToken(Double.class, parser);
+        }
+
+        @Override
+        public Double getNullValue(DeserializationContext context) {
+            return 0.0;
+        }
+    }
+}
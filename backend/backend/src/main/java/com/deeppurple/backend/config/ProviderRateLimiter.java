@@ -0,0 +1,188 @@
+package com.deeppurple.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Process-wide request scheduling per provider, shared by every request that goes through the provider clients.
+ * <p>
+ * Each provider has a token bucket filled at {@code requests-per-minute} up to {@code burst} requests, read from
+ * {@code analysis.providers.rate-limit.*} and overridable under {@code analysis.providers.<name>.*}. A request
+ * reserves a token and waits until its slot comes up, so concurrent callers are spaced out in arrival order instead
+ * of all hitting a 429. The bucket follows the provider's own view of the quota: {@code x-ratelimit-remaining-requests}
+ * lowers the available tokens, an exhausted quota pauses the bucket until {@code x-ratelimit-reset-requests}, and a
+ * {@code Retry-After} on a 429 or 503 pauses it for that long. Requests that would wait longer than {@code max-wait}
+ * fail at once, and a request cancelled while waiting gives its token back.
+ */
+@Component
+public class ProviderRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(ProviderRateLimiter.class);
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final Environment environment;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public ProviderRateLimiter(Environment environment) {
+        this.environment = environment;
+    }
+
+    /** WebClient filter that schedules the provider's requests and feeds its rate limit headers back into the bucket. */
+    public ExchangeFilterFunction filter(String provider) {
+        TokenBucket bucket = bucket(provider);
+        return (request, next) -> bucket.acquire()
+                .then(Mono.defer(() -> next.exchange(request)))
+                .doOnNext(response -> bucket.update(response.statusCode(), response.headers().asHttpHeaders()));
+    }
+
+    private TokenBucket bucket(String provider) {
+        return buckets.computeIfAbsent(provider, name -> new TokenBucket(name,
+                property(name, "requests-per-minute", Double.class, 120.0),
+                property(name, "burst", Integer.class, 10),
+                property(name, "max-wait", Duration.class, Duration.ofSeconds(30)), System::nanoTime));
+    }
+
+    private <T> T property(String provider, String key, Class<T> type, T defaultValue) {
+        T shared = environment.getProperty("analysis.providers.rate-limit." + key, type, defaultValue);
+        return environment.getProperty("analysis.providers." + provider + "." + key, type, shared);
+    }
+
+    // Go-style durations used by the x-ratelimit-reset-* headers, e.g. "1s", "6m0s", "20ms"
+    static Duration parseResetDuration(String value) {
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        boolean matched = false;
+        while (matcher.find()) {
+            matched = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1_000;
+                default -> amount;
+            };
+        }
+        return matched ? Duration.ofMillis((long) Math.ceil(millis)) : null;
+    }
+
+    /** Retry-After value, either a number of seconds or an HTTP date; null when unparseable. */
+    public static Duration parseRetryAfter(String value) {
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                Duration until = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return until.isNegative() ? Duration.ZERO : until;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    static final class TokenBucket {
+        private final String provider;
+        private final double tokensPerNano;
+        private final int capacity;
+        private final long maxWaitNanos;
+        private final LongSupplier clock; // Nanoseconds
+        private double tokens;        // Negative while requests are queued for future slots
+        private long refilledAt;
+        private long pausedUntil;
+
+        TokenBucket(String provider, double requestsPerMinute, int burst, Duration maxWait, LongSupplier clock) {
+            this.provider = provider;
+            this.tokensPerNano = Math.max(requestsPerMinute, 0.001) / Duration.ofMinutes(1).toNanos();
+            this.capacity = Math.max(1, burst);
+            this.maxWaitNanos = maxWait.toNanos();
+            this.clock = clock;
+            this.tokens = capacity;
+            this.refilledAt = clock.getAsLong();
+            this.pausedUntil = refilledAt;
+        }
+
+        Mono<Void> acquire() {
+            return Mono.defer(() -> {
+                long waitNanos = reserve();
+                if (waitNanos < 0) {
+                    return Mono.error(new RuntimeException("Rate limit of provider " + provider + " would delay the request by more than "
+                            + Duration.ofNanos(maxWaitNanos).toMillis() + " ms"));
+                }
+                // A caller that gives up while waiting (timeout, lost race) frees its slot for the requests behind it
+                return waitNanos == 0 ? Mono.empty() : Mono.delay(Duration.ofNanos(waitNanos)).doOnCancel(this::refund).then();
+            });
+        }
+
+        // Takes the next slot and returns how long to wait for it, or -1 (taking nothing) when that exceeds the max wait
+        synchronized long reserve() {
+            long now = clock.getAsLong();
+            refill(now);
+            long slot = Math.max(pausedUntil, tokens >= 1 ? now : now + (long) Math.ceil((1 - tokens) / tokensPerNano));
+            long waitNanos = slot - now;
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            tokens -= 1;
+            return waitNanos;
+        }
+
+        // Returns a reserved token that will not be used
+        synchronized void refund() {
+            refill(clock.getAsLong());
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        synchronized void update(HttpStatusCode status, HttpHeaders headers) {
+            long now = clock.getAsLong();
+            refill(now);
+            String remaining = headers.getFirst("x-ratelimit-remaining-requests");
+            if (remaining != null) {
+                try {
+                    double remainingRequests = Double.parseDouble(remaining.trim());
+                    tokens = Math.min(tokens, remainingRequests);
+                    String reset = headers.getFirst("x-ratelimit-reset-requests");
+                    Duration resetIn = reset == null ? null : parseResetDuration(reset);
+                    if (remainingRequests < 1 && resetIn != null) {
+                        pause(now, resetIn);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // Unknown format: keep the configured quota
+                }
+            }
+            String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+            if (retryAfter != null && (status.value() == 429 || status.value() == 503)) {
+                Duration pause = parseRetryAfter(retryAfter);
+                if (pause != null) {
+                    pause(now, pause);
+                }
+            }
+        }
+
+        private void pause(long now, Duration pause) {
+            long until = now + pause.toNanos();
+            if (until > pausedUntil) {
+                pausedUntil = until;
+                logger.info("Pausing requests to provider {} for {} ms (rate limited)", provider, pause.toMillis());
+            }
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.deeppurple.backend.config;
+
+import com.deeppurple.backend.lexicon.TokenPrefilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prefilter for unknown words, built from the bundled {@code stopwords_<language>.txt} lists of the configured
+ * languages plus any extra stop words.
+ */
+@Configuration
+public class TokenPrefilterConfig {
+    private static final Logger logger = LoggerFactory.getLogger(TokenPrefilterConfig.class);
+
+    @Bean
+    public TokenPrefilter tokenPrefilter(ResourceLoader resourceLoader,
+                                         @Value("${analysis.missing-words.stop-word-languages:en}") String[] languages,
+                                         @Value("${analysis.missing-words.extra-stop-words:}") String[] extraStopWords,
+                                         @Value("${analysis.missing-words.min-length:2}") int minLength) throws IOException {
+        List<String> stopWords = new ArrayList<>();
+        for (String word : extraStopWords) {
+            if (!word.isBlank()) {
+                stopWords.add(word.strip());
+            }
+        }
+        for (String language : languages) {
+            String name = "stopwords_" + language.strip().toLowerCase() + ".txt";
+            Resource resource = resourceLoader.getResource("classpath:" + name);
+            if (!resource.exists()) {
+                throw new IllegalStateException("Stop-word list '" + name + "' not found for language '" + language + "'");
+            }
+            try (InputStream in = resource.getInputStream()) {
+                stopWords.addAll(TokenPrefilter.readWords(in));
+            }
+        }
+        TokenPrefilter prefilter = TokenPrefilter.of(stopWords, minLength);
+        logger.info("Unknown-word prefilter: {} stop words for languages {}, minimum length {}",
+                prefilter.stopWordCount(), Arrays.toString(languages), minLength);
+        return prefilter;
+    }
+}
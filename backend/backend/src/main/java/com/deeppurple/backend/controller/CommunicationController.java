@@ -14,6 +14,7 @@ import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
 import org.springframework.http.*;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
@@ -22,7 +23,6 @@ import reactor.core.publisher.Mono;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -64,6 +64,26 @@ public class CommunicationController {
     @PostMapping
     public Mono<ResponseEntity<Communication>> saveCommunication(
             @Valid @RequestBody CommunicationDTO communicationDTO) {
+        Communication communication = toCommunication(communicationDTO);
+
+        return service.saveCommunication(communicationDTO.getModelName(), communication, communicationDTO.getMode())
+                .map(savedCommunication -> ResponseEntity.ok(savedCommunication))
+                .defaultIfEmpty(ResponseEntity.badRequest().build());
+    }
+
+    // Same analysis as POST /communications, streamed as server-sent events (lexicon, provider, analysis, result, error)
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamCommunication(
+            @Valid @RequestBody CommunicationDTO communicationDTO) {
+        Communication communication = toCommunication(communicationDTO);
+
+        return service.streamCommunication(communicationDTO.getModelName(), communication, communicationDTO.getMode())
+                .map(event -> ServerSentEvent.builder(event.getData())
+                        .event(event.getType())
+                        .build());
+    }
+
+    private Communication toCommunication(CommunicationDTO communicationDTO) {
         Communication communication = new Communication();
         communication.setModelName(communicationDTO.getModelName());
         communication.setModelVersion(communicationDTO.getModelVersion());
@@ -81,10 +101,7 @@ public class CommunicationController {
 
         communication.setSummary(communicationDTO.getSummary());
         communication.setConfidenceRating(communicationDTO.getConfidenceRating());
-
-        return service.saveCommunication(communicationDTO.getModelName(), communication)
-                .map(savedCommunication -> ResponseEntity.ok(savedCommunication))
-                .defaultIfEmpty(ResponseEntity.badRequest().build());
+        return communication;
     }
 
     // Delete communication by ID
@@ -99,8 +116,15 @@ public class CommunicationController {
     @PostMapping("/upload")
     public Mono<Communication> uploadAndAnalyzeFile(
             @RequestParam("file") MultipartFile file,
-            @RequestParam("modelName") String modelName ){
+            @RequestParam("modelName") String modelName,
+            @RequestParam(value = "mode", required = false) String mode){
+
+        return readCommunication(file, modelName)
+                .flatMap(communication -> service.saveCommunication(modelName, communication, mode));
+    }
 
+    // Communication holding the text extracted from an uploaded DOCX, PDF or plain-text file
+    private Mono<Communication> readCommunication(MultipartFile file, String modelName) {
         String fileType = file.getContentType();
         String extractedText;
 
@@ -122,8 +146,7 @@ public class CommunicationController {
         Communication communication = new Communication();
         communication.setContent(extractedText);
         communication.setModelName(modelName);
-
-        return service.saveCommunication(modelName, communication);
+        return Mono.just(communication);
     }
 
     @PostMapping("/batch-upload")
@@ -136,21 +159,11 @@ public class CommunicationController {
         System.out.println("Files: " + files.size() + " files received.");
         System.out.println("Model Name: " + modelName);
 
-        List<Mono<Communication>> uploadTasks = files.stream()
-                .map(file -> Mono.delay(Duration.ofSeconds(1)) // Introduce a delay of 1 second before each upload
-                        .flatMap(aLong -> uploadAndAnalyzeFile(file, modelName))) // Chain the delay with the upload call
-                .collect(Collectors.toList());
-
-        // Debugging: Log the number of upload tasks being processed
-        System.out.println("Number of tasks to upload and analyze: " + uploadTasks.size());
-
-        return Flux.fromIterable(uploadTasks)
-                .concatMap(uploadTask ->
-                        uploadTask
-                                .delayElement(Duration.ofMillis(500)) // Delay of 500ms between each task
-                                .doOnSubscribe(subscription -> System.out.println("Starting upload for file"))
-                )
+        // Texts are extracted up front and analyzed together, so short files share provider requests
+        return Flux.fromIterable(files)
+                .concatMap(file -> readCommunication(file, modelName))
                 .collectList()
+                .flatMap(communications -> service.saveCommunications(modelName, communications))
                 .flatMap(communications -> {
                     try {
                         // Debugging: Log the number of communications received after analysis
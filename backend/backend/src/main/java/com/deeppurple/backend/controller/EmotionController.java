@@ -5,6 +5,7 @@ import com.deeppurple.backend.entity.EmotionCategory;
 import com.deeppurple.backend.entity.WordEmotionAssociation;
 import com.deeppurple.backend.repository.WordEmotionAssociationRepository;
 import com.deeppurple.backend.service.EmotionCategoryService;
+import com.deeppurple.backend.service.NeutralWordService;
 import com.deeppurple.backend.service.WordEmotionAssociationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -25,6 +26,9 @@ public class EmotionController {
     @Autowired
     private WordEmotionAssociationRepository wordEmotionAssociationRepository;
 
+    @Autowired
+    private NeutralWordService neutralWordService;
+
     // Emotion Category Endpoints
     @PostMapping("/category")
     public EmotionCategory createEmotionCategory(
@@ -72,4 +76,10 @@ public class EmotionController {
     public void deleteWordEmotionAssociation(@PathVariable Long id) {
         wordEmotionAssociationService.deleteWordEmotionAssociation(id);
     }
+
+    // Words wrongly found neutral are classified again the next time they are seen
+    @DeleteMapping("/neutral-words/{modelName}")
+    public int deleteNeutralWords(@PathVariable String modelName, @RequestParam List<String> words) {
+        return neutralWordService.removeNeutral(modelName, words.stream().map(String::strip).map(String::toLowerCase).toList());
+    }
 }
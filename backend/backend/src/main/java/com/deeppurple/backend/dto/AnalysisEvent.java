@@ -0,0 +1,38 @@
+package com.deeppurple.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// One stage of a streamed analysis; the type becomes the server-sent event name
+@Data
+@AllArgsConstructor
+public class AnalysisEvent {
+    public static final String LEXICON = "lexicon";      // local lexicon counts, emitted before any remote call
+    public static final String PROVIDER = "provider";    // one provider's result, in order of arrival
+    public static final String ANALYSIS = "analysis";    // merged result
+    public static final String RESULT = "result";        // persisted communication
+    public static final String ERROR = "error";
+
+    private String type;
+    private Object data;
+
+    public static AnalysisEvent lexicon(Object counts) {
+        return new AnalysisEvent(LEXICON, counts);
+    }
+
+    public static AnalysisEvent provider(Object providerResult) {
+        return new AnalysisEvent(PROVIDER, providerResult);
+    }
+
+    public static AnalysisEvent analysis(Object mergedResult) {
+        return new AnalysisEvent(ANALYSIS, mergedResult);
+    }
+
+    public static AnalysisEvent result(Object communication) {
+        return new AnalysisEvent(RESULT, communication);
+    }
+
+    public static AnalysisEvent error(String message) {
+        return new AnalysisEvent(ERROR, message);
+    }
+}
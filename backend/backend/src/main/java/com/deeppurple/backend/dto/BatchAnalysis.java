@@ -0,0 +1,30 @@
+package com.deeppurple.backend.dto;
+
+import java.util.List;
+
+// Response to a packed batch prompt: one entry per text, identified by its 1-based position in the prompt
+public record BatchAnalysis(List<Item> results) {
+
+    public record Item(int id,
+                       EmotionAnalysis.Emotion primaryEmotion,
+                       List<EmotionAnalysis.Emotion> secondaryEmotions,
+                       double confidenceRating,
+                       String summary) {
+
+        public EmotionAnalysis analysis() {
+            return new EmotionAnalysis(primaryEmotion, secondaryEmotions, confidenceRating, summary, null, null);
+        }
+    }
+
+    public BatchAnalysis {
+        results = results == null ? List.of() : results;
+    }
+
+    public EmotionAnalysis find(int id) {
+        return results.stream()
+                .filter(item -> item != null && item.id() == id)
+                .findFirst()
+                .map(Item::analysis)
+                .orElse(null);
+    }
+}
@@ -2,6 +2,7 @@ package com.deeppurple.backend.dto;
 
 import com.deeppurple.backend.entity.EmotionDetails;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import java.util.List;
 
@@ -20,6 +21,9 @@ public class CommunicationDTO {
     private double confidenceRating;
     private String modelVersion;
 
+    @Pattern(regexp = "full|lexicon", message = "Mode must be 'full' or 'lexicon'")
+    private String mode; // "full" (default) runs the LLM analysis, "lexicon" scores with the model's lexicon only
+
 
     // Default constructor
     public CommunicationDTO(double confidenceRating) {
@@ -91,4 +95,12 @@ public class CommunicationDTO {
     public void setModelVersion(String modelVersion) {
         this.modelVersion = modelVersion;
     }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
 }
@@ -0,0 +1,30 @@
+package com.deeppurple.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Result of one analysis, as returned by a provider (modelVersion and cacheStatus are attached afterwards)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record EmotionAnalysis(Emotion primaryEmotion,
+                              List<Emotion> secondaryEmotions,
+                              double confidenceRating,
+                              String summary,
+                              String modelVersion,
+                              String cacheStatus) {
+
+    public record Emotion(String emotion, double percentage) {
+    }
+
+    public EmotionAnalysis {
+        secondaryEmotions = secondaryEmotions == null ? List.of() : List.copyOf(secondaryEmotions);
+    }
+
+    public EmotionAnalysis withModelVersion(String modelVersion) {
+        return new EmotionAnalysis(primaryEmotion, secondaryEmotions, confidenceRating, summary, modelVersion, cacheStatus);
+    }
+
+    public EmotionAnalysis withCacheStatus(String cacheStatus) {
+        return new EmotionAnalysis(primaryEmotion, secondaryEmotions, confidenceRating, summary, modelVersion, cacheStatus);
+    }
+}
@@ -0,0 +1,5 @@
+package com.deeppurple.backend.dto;
+
+// One classified word from the unknown-word classification prompt
+public record WordEmotion(String word, String emotion) {
+}
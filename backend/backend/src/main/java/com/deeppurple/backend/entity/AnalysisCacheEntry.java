@@ -0,0 +1,32 @@
+package com.deeppurple.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Persistent tier of the analysis cache; keyed by a hash of the normalized content, model name and lexicon version
+@Data
+@Entity
+@Table(name = "analysis_cache", indexes = @Index(name = "idx_analysis_cache_model", columnList = "modelName"))
+public class AnalysisCacheEntry {
+    @Id
+    @Column(length = 64)
+    private String cacheKey; // SHA-256, hex
+
+    @Column(nullable = false)
+    private String modelName;
+
+    private long lexiconVersion;
+
+    @Column(columnDefinition = "text", nullable = false)
+    private String result; // Analysis result as JSON
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
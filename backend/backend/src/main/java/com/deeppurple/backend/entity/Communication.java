@@ -33,6 +33,9 @@ public class Communication {
 
     private String modelName;  // The model used for analysis
 
+    @Transient
+    private String cacheStatus; // "hit", "miss" or "coalesced" when the analysis cache was consulted; not persisted
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime timestamp;
 
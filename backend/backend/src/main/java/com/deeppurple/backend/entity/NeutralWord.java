@@ -0,0 +1,33 @@
+package com.deeppurple.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// A word the classifier found no emotion in for the model; such words are not sent to the classifier again
+@Data
+@Entity
+@Table(name = "neutral_words", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"modelName", "word"})
+})
+public class NeutralWord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String modelName;
+
+    @Column(nullable = false)
+    private String word;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -20,6 +20,9 @@ public class WordEmotionAssociation {
 
     private boolean predefined = false; // Indicates if this is a predefined model
 
+    @Column(columnDefinition = "boolean not null default false")
+    private boolean learned = false; // Classified from an unknown word rather than seeded or added by a user
+
     @ManyToOne
     @JoinColumn(name = "emotion_category_id")
     @JsonBackReference
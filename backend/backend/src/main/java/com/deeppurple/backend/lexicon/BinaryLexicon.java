@@ -0,0 +1,200 @@
+package com.deeppurple.backend.lexicon;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only view of a lexicon compiled by {@link LexiconCompiler}, usually memory-mapped from disk.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int    magic "DPLX", int format version
+ * int    emotion count, then per emotion: unsigned short length + UTF-8 name
+ * int    word count, int block count, int[block count] absolute block offsets
+ * entries, sorted by lower-cased word; each entry is
+ *        u8 shared prefix length, u8 suffix length, suffix as UTF-16 chars,
+ *        u8 emotion count, u8 emotion ordinals
+ * </pre>
+ * Words are front-coded against the previous entry and every {@link LexiconCompiler#BLOCK_SIZE}-th entry
+ * restarts with a full word, so a lookup is a binary search over block heads followed by a short scan.
+ * Only absolute reads are used, so one instance can be shared by any number of threads.
+ */
+public final class BinaryLexicon {
+    static final int MAGIC = 0x44504C58;
+    static final int FORMAT_VERSION = 1;
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(String word, int[] ordinals);
+    }
+
+    private final ByteBuffer buffer;
+    private final List<String> emotions;
+    private final int wordCount;
+    private final int[] blockOffsets;
+
+    public BinaryLexicon(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not a compiled lexicon (format " + FORMAT_VERSION + ")");
+        }
+        int position = 8;
+        int emotionCount = buffer.getInt(position);
+        position += 4;
+        List<String> names = new ArrayList<>(emotionCount);
+        for (int i = 0; i < emotionCount; i++) {
+            int length = Short.toUnsignedInt(buffer.getShort(position));
+            byte[] name = new byte[length];
+            buffer.get(position + 2, name);
+            names.add(new String(name, StandardCharsets.UTF_8));
+            position += 2 + length;
+        }
+        this.emotions = List.copyOf(names);
+        this.wordCount = buffer.getInt(position);
+        int blockCount = buffer.getInt(position + 4);
+        position += 8;
+        this.blockOffsets = new int[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blockOffsets[i] = buffer.getInt(position + 4 * i);
+        }
+    }
+
+    /** Maps the file read-only; the mapping stays valid after the channel is closed. */
+    public static BinaryLexicon open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new BinaryLexicon(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public List<String> emotions() {
+        return emotions;
+    }
+
+    public int wordCount() {
+        return wordCount;
+    }
+
+    public boolean contains(CharSequence text, int start, int end) {
+        return find(text, start, end) >= 0;
+    }
+
+    /** Emotion ordinals of the word {@code text[start, end)} (compared lower-cased), or an empty array. */
+    public int[] lookup(CharSequence text, int start, int end) {
+        int record = find(text, start, end);
+        if (record < 0) {
+            return new int[0];
+        }
+        int[] ordinals = new int[buffer.get(record) & 0xFF];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = buffer.get(record + 1 + i) & 0xFF;
+        }
+        return ordinals;
+    }
+
+    /** Decodes every entry in sorted order. */
+    public void forEach(EntryVisitor visitor) {
+        char[] word = new char[256];
+        for (int block = 0; block < blockOffsets.length; block++) {
+            int position = blockOffsets[block];
+            int entries = Math.min(LexiconCompiler.BLOCK_SIZE, wordCount - block * LexiconCompiler.BLOCK_SIZE);
+            for (int e = 0; e < entries; e++) {
+                int shared = buffer.get(position) & 0xFF;
+                int suffix = buffer.get(position + 1) & 0xFF;
+                position += 2;
+                for (int i = 0; i < suffix; i++) {
+                    word[shared + i] = buffer.getChar(position);
+                    position += 2;
+                }
+                int[] ordinals = new int[buffer.get(position) & 0xFF];
+                for (int i = 0; i < ordinals.length; i++) {
+                    ordinals[i] = buffer.get(position + 1 + i) & 0xFF;
+                }
+                position += 1 + ordinals.length;
+                visitor.visit(new String(word, 0, shared + suffix), ordinals);
+            }
+        }
+    }
+
+    // Position of the entry's emotion record, or -1
+    private int find(CharSequence text, int start, int end) {
+        int keyLength = end - start;
+        if (keyLength == 0 || keyLength > 255) {
+            return -1;
+        }
+
+        // Last block whose head word is <= key
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        int block = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compareHead(blockOffsets[mid], text, start, end) <= 0) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return -1;
+        }
+
+        // Scan the block keeping the common prefix length between the key and the previous entry,
+        // so front-coded entries are compared without rebuilding them.
+        int position = blockOffsets[block];
+        int entries = Math.min(LexiconCompiler.BLOCK_SIZE, wordCount - block * LexiconCompiler.BLOCK_SIZE);
+        int common = 0;
+        for (int e = 0; e < entries; e++) {
+            int shared = buffer.get(position) & 0xFF;
+            int suffix = buffer.get(position + 1) & 0xFF;
+            int chars = position + 2;
+            int record = chars + 2 * suffix;
+            int next = record + 1 + (buffer.get(record) & 0xFF);
+
+            if (e > 0 && shared < common) {
+                return -1; // Entry diverges from the previous one before the key does, so it sorts after the key
+            }
+            if (e == 0 || shared == common) {
+                int length = shared + suffix;
+                int i = shared;
+                while (i < length && i < keyLength) {
+                    char stored = buffer.getChar(chars + 2 * (i - shared));
+                    char wanted = Character.toLowerCase(text.charAt(start + i));
+                    if (stored != wanted) {
+                        break;
+                    }
+                    i++;
+                }
+                if (i == length && i == keyLength) {
+                    return record;
+                }
+                if (i == keyLength || (i < length && buffer.getChar(chars + 2 * (i - shared)) > Character.toLowerCase(text.charAt(start + i)))) {
+                    return -1; // Entry sorts after the key
+                }
+                common = i;
+            }
+            // shared > common: the entry still sorts before the key, like the previous one
+            position = next;
+        }
+        return -1;
+    }
+
+    private int compareHead(int position, CharSequence text, int start, int end) {
+        int length = buffer.get(position + 1) & 0xFF;
+        int chars = position + 2;
+        int keyLength = end - start;
+        for (int i = 0; i < Math.min(length, keyLength); i++) {
+            int diff = buffer.getChar(chars + 2 * i) - Character.toLowerCase(text.charAt(start + i));
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - keyLength;
+    }
+}
@@ -0,0 +1,274 @@
+package com.deeppurple.backend.lexicon;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Lexicon scoring engine for a single model.
+ * <p>
+ * Emotion categories are mapped to dense ordinals and every distinct lexicon word is stored once, with a
+ * {@code long} bitmask of its emotion ordinals (models with more than 64 emotions use several longs per word).
+ * An open-addressing table of word ids, keyed by the lower-cased characters, resolves a token without
+ * building a substring. Scoring walks the content once and, per matched token, iterates the set bits of
+ * its mask into an {@code int[]} count vector, so the cost is linear in the document size and independent
+ * of the lexicon size. No objects are allocated per token. Instances are immutable and thread-safe.
+ */
+public final class EmotionScorer {
+
+    private final String[] emotions;
+    private final int stride;       // longs per word mask
+    private final String[] words;   // by word id, lower-cased
+    private final long[] masks;     // words.length * stride
+    private final int[] table;      // word id + 1 per slot, 0 when empty
+    private final int tableMask;
+
+    private EmotionScorer(String[] emotions, int stride, String[] words, long[] masks) {
+        this.emotions = emotions;
+        this.stride = stride;
+        this.words = words;
+        this.masks = masks;
+        int capacity = Integer.highestOneBit(Math.max(4, words.length * 2 - 1)) << 1;
+        this.table = new int[capacity];
+        this.tableMask = capacity - 1;
+        for (int id = 0; id < words.length; id++) {
+            int slot = hash(words[id], 0, words[id].length()) & tableMask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & tableMask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    public static Builder builder(List<String> emotions) {
+        return new Builder(emotions);
+    }
+
+    public int emotionCount() {
+        return emotions.length;
+    }
+
+    public String emotion(int ordinal) {
+        return emotions[ordinal];
+    }
+
+    public int wordCount() {
+        return words.length;
+    }
+
+    /** Lower-cased word with the given id; ids are assigned in insertion order. */
+    public String word(int wordId) {
+        return words[wordId];
+    }
+
+    public List<String> words() {
+        return List.of(words);
+    }
+
+    public boolean hasEmotion(int wordId, int ordinal) {
+        return (masks[wordId * stride + (ordinal >>> 6)] & (1L << ordinal)) != 0;
+    }
+
+    /** Emotion ordinals of a word, decoded from its mask. */
+    public int[] ordinals(int wordId) {
+        int count = 0;
+        for (int w = 0; w < stride; w++) {
+            count += Long.bitCount(masks[wordId * stride + w]);
+        }
+        int[] ordinals = new int[count];
+        int i = 0;
+        for (int w = 0; w < stride; w++) {
+            long mask = masks[wordId * stride + w];
+            while (mask != 0) {
+                ordinals[i++] = (w << 6) + Long.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+            }
+        }
+        return ordinals;
+    }
+
+    /** Scores the whole content in one pass. */
+    public EmotionScores score(CharSequence content) {
+        Accumulator accumulator = new Accumulator(new int[emotions.length]);
+        LexiconTokenizer.tokenize(content, accumulator);
+        return accumulator.toScores();
+    }
+
+    /**
+     * Scores content of at least {@code parallelThreshold} chars on the common fork-join pool: the text is split
+     * at whitespace into chunks of roughly {@code chunkSize} chars, each chunk is scored into its own count
+     * vector and the vectors are summed. Shorter content is scored on the calling thread.
+     */
+    public EmotionScores score(CharSequence content, int parallelThreshold, int chunkSize) {
+        if (content.length() < parallelThreshold || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            return score(content);
+        }
+        return ForkJoinPool.commonPool().invoke(new ScoreTask(content, 0, content.length(), Math.max(1, chunkSize))).toScores();
+    }
+
+    public boolean contains(CharSequence content, int start, int end) {
+        return wordId(content, start, end) >= 0;
+    }
+
+    /** Id of the word {@code content[start, end)}, compared case-insensitively, or -1. */
+    public int wordId(CharSequence content, int start, int end) {
+        int slot = hash(content, start, end) & tableMask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (equalsIgnoreCase(words[entry - 1], content, start, end)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return -1;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + Character.toLowerCase(text.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equalsIgnoreCase(String word, CharSequence text, int start, int end) {
+        if (word.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) != Character.toLowerCase(text.charAt(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class Accumulator implements LexiconTokenizer.TokenHandler {
+        private final int[] counts;
+        private int tokens;
+        private int matchedTokens;
+
+        private Accumulator(int[] counts) {
+            this.counts = counts;
+        }
+
+        private Accumulator merge(Accumulator other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            tokens += other.tokens;
+            matchedTokens += other.matchedTokens;
+            return this;
+        }
+
+        private EmotionScores toScores() {
+            return new EmotionScores(emotions, counts, tokens, matchedTokens);
+        }
+
+        @Override
+        public void onToken(CharSequence text, int start, int end, boolean emoji) {
+            tokens++;
+            int id = wordId(text, start, end);
+            if (id < 0) {
+                return;
+            }
+            matchedTokens++;
+            for (int w = 0; w < stride; w++) {
+                long mask = masks[id * stride + w];
+                while (mask != 0) {
+                    counts[(w << 6) + Long.numberOfTrailingZeros(mask)]++;
+                    mask &= mask - 1;
+                }
+            }
+        }
+    }
+
+    private final class ScoreTask extends RecursiveTask<Accumulator> {
+        private final CharSequence content;
+        private final int start;
+        private final int end;
+        private final int chunkSize;
+
+        private ScoreTask(CharSequence content, int start, int end, int chunkSize) {
+            this.content = content;
+            this.start = start;
+            this.end = end;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            int split = end - start > chunkSize ? splitPoint() : -1;
+            if (split < 0) {
+                Accumulator accumulator = new Accumulator(new int[emotions.length]);
+                LexiconTokenizer.tokenize(content, start, end, accumulator);
+                return accumulator;
+            }
+            ScoreTask left = new ScoreTask(content, start, split, chunkSize);
+            ScoreTask right = new ScoreTask(content, split, end, chunkSize);
+            left.fork();
+            Accumulator rightResult = right.compute();
+            return left.join().merge(rightResult);
+        }
+
+        // Whitespace nearest to the middle; tokens never span whitespace, so both halves tokenize independently
+        private int splitPoint() {
+            int middle = (start + end) >>> 1;
+            for (int i = middle; i < end; i++) {
+                if (Character.isWhitespace(content.charAt(i))) {
+                    return i;
+                }
+            }
+            for (int i = middle - 1; i > start; i--) {
+                if (Character.isWhitespace(content.charAt(i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    public static final class Builder {
+        private final String[] emotions;
+        private final int stride;
+        private final Map<String, Integer> ordinalByEmotion = new HashMap<>();
+        private final Map<String, long[]> words = new LinkedHashMap<>();
+
+        private Builder(List<String> emotions) {
+            this.emotions = emotions.toArray(new String[0]);
+            this.stride = Math.max(1, (this.emotions.length + 63) >>> 6);
+            for (int ordinal = 0; ordinal < this.emotions.length; ordinal++) {
+                ordinalByEmotion.putIfAbsent(this.emotions[ordinal], ordinal);
+            }
+        }
+
+        /** Associates a word with an emotion; unknown emotions are ignored. */
+        public Builder add(String word, String emotion) {
+            Integer ordinal = ordinalByEmotion.get(emotion);
+            return ordinal == null ? this : add(word, ordinal);
+        }
+
+        public Builder add(String word, int ordinal) {
+            if (word == null || word.isEmpty() || ordinal < 0 || ordinal >= emotions.length) {
+                return this;
+            }
+            long[] mask = words.computeIfAbsent(LexiconTokenizer.lowerCase(word), w -> new long[stride]);
+            mask[ordinal >>> 6] |= 1L << ordinal;
+            return this;
+        }
+
+        public EmotionScorer build() {
+            String[] wordArray = words.keySet().toArray(new String[0]);
+            long[] masks = new long[wordArray.length * stride];
+            int id = 0;
+            for (long[] mask : words.values()) {
+                System.arraycopy(mask, 0, masks, id++ * stride, stride);
+            }
+            return new EmotionScorer(Arrays.copyOf(emotions, emotions.length), stride, wordArray, masks);
+        }
+    }
+}
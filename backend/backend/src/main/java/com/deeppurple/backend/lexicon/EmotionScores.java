@@ -0,0 +1,75 @@
+package com.deeppurple.backend.lexicon;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result of scoring a text against a lexicon: raw counts per emotion ordinal plus token statistics.
+ */
+public final class EmotionScores {
+    private final String[] emotions;
+    private final int[] counts;
+    private final int tokens;
+    private final int matchedTokens;
+    private final long total;
+
+    EmotionScores(String[] emotions, int[] counts, int tokens, int matchedTokens) {
+        this.emotions = emotions;
+        this.counts = counts;
+        this.tokens = tokens;
+        this.matchedTokens = matchedTokens;
+        long sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+        this.total = sum;
+    }
+
+    public int emotionCount() {
+        return counts.length;
+    }
+
+    public String emotion(int ordinal) {
+        return emotions[ordinal];
+    }
+
+    public int count(int ordinal) {
+        return counts[ordinal];
+    }
+
+    /** Sum of all emotion hits; a word tied to several emotions counts once per emotion. */
+    public long total() {
+        return total;
+    }
+
+    /** Number of tokens in the scored text. */
+    public int tokens() {
+        return tokens;
+    }
+
+    /** Number of tokens that had at least one lexicon emotion. */
+    public int matchedTokens() {
+        return matchedTokens;
+    }
+
+    /** Share of the total hits per emotion ordinal, in percent; all zeros if nothing matched. */
+    public double[] distribution() {
+        double[] distribution = new double[counts.length];
+        if (total == 0) {
+            return distribution;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            distribution[i] = counts[i] * 100.0 / total;
+        }
+        return distribution;
+    }
+
+    /** Counts keyed by emotion name, in category order. */
+    public Map<String, Integer> toCountMap() {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            map.put(emotions[i], counts[i]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,123 @@
+package com.deeppurple.backend.lexicon;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Compiles a JSON lexicon ({@code {"word": ["emotion", ...]}}) into the binary format read by {@link BinaryLexicon}.
+ * <p>
+ * Runs at build time from the {@code exec-maven-plugin} with pairs of {@code <input.json> <output.bin>} arguments,
+ * and at startup as a fallback when a compiled file is missing from the classpath (e.g. IDE builds).
+ */
+public final class LexiconCompiler {
+    private static final Logger logger = LoggerFactory.getLogger(LexiconCompiler.class);
+    static final int BLOCK_SIZE = 16;
+    private static final int MAX_WORD_LENGTH = 255;
+
+    private LexiconCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 != 0) {
+            throw new IllegalArgumentException("Usage: LexiconCompiler <input.json> <output.bin> [<input.json> <output.bin> ...]");
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            Path input = Path.of(args[i]);
+            Path output = Path.of(args[i + 1]);
+            try (InputStream in = Files.newInputStream(input)) {
+                byte[] compiled = compile(in);
+                Files.createDirectories(output.toAbsolutePath().getParent());
+                Files.write(output, compiled);
+                logger.info("Compiled lexicon {} -> {} ({} bytes)", input.getFileName(), output.getFileName(), compiled.length);
+            }
+        }
+    }
+
+    public static byte[] compile(InputStream json) throws IOException {
+        Map<String, List<String>> lexicon = new ObjectMapper().readValue(json, new TypeReference<LinkedHashMap<String, List<String>>>() {});
+        return compile(lexicon);
+    }
+
+    public static byte[] compile(Map<String, List<String>> lexicon) throws IOException {
+        // Emotion ordinals in order of first appearance; words lower-cased, merged and sorted
+        Map<String, Integer> ordinals = new LinkedHashMap<>();
+        TreeMap<String, TreeSet<Integer>> words = new TreeMap<>();
+        lexicon.forEach((word, emotions) -> {
+            if (word == null || word.isEmpty() || word.length() > MAX_WORD_LENGTH || emotions == null) {
+                return;
+            }
+            TreeSet<Integer> wordOrdinals = words.computeIfAbsent(LexiconTokenizer.lowerCase(word), w -> new TreeSet<>());
+            for (String emotion : emotions) {
+                wordOrdinals.add(ordinals.computeIfAbsent(emotion, e -> ordinals.size()));
+            }
+        });
+        if (ordinals.size() > 255) {
+            throw new IllegalArgumentException("Too many emotions for the binary lexicon format: " + ordinals.size());
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(header);
+        out.writeInt(BinaryLexicon.MAGIC);
+        out.writeInt(BinaryLexicon.FORMAT_VERSION);
+        out.writeInt(ordinals.size());
+        for (String emotion : ordinals.keySet()) {
+            byte[] name = emotion.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+        }
+        int blockCount = (words.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        out.writeInt(words.size());
+        out.writeInt(blockCount);
+        int entriesStart = out.size() + 4 * blockCount;
+
+        ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+        DataOutputStream entries = new DataOutputStream(entryBytes);
+        List<Integer> blockOffsets = new ArrayList<>(blockCount);
+        String previous = "";
+        int index = 0;
+        for (Map.Entry<String, TreeSet<Integer>> entry : words.entrySet()) {
+            String word = entry.getKey();
+            int shared = 0;
+            if (index % BLOCK_SIZE == 0) {
+                blockOffsets.add(entriesStart + entries.size());
+            } else {
+                int max = Math.min(previous.length(), word.length());
+                while (shared < max && previous.charAt(shared) == word.charAt(shared)) {
+                    shared++;
+                }
+            }
+            entries.writeByte(shared);
+            entries.writeByte(word.length() - shared);
+            entries.writeChars(word.substring(shared));
+            entries.writeByte(entry.getValue().size());
+            for (int ordinal : entry.getValue()) {
+                entries.writeByte(ordinal);
+            }
+            previous = word;
+            index++;
+        }
+
+        for (int offset : blockOffsets) {
+            out.writeInt(offset);
+        }
+        out.write(entryBytes.toByteArray());
+        out.flush();
+        return header.toByteArray();
+    }
+}
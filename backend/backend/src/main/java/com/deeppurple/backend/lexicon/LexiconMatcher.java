@@ -0,0 +1,233 @@
+package com.deeppurple.backend.lexicon;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton compiled from a model's lexicon.
+ * <p>
+ * The automaton is built once per lexicon and then finds every occurrence of every
+ * lexicon entry (words, emoticons and emojis) in a single linear pass over the content.
+ * Matching is case-insensitive; entries that start or end with a word character only
+ * match on word boundaries, mirroring the old {@code \b word \b} regex check.
+ * Instances are immutable and safe to share between threads.
+ */
+public final class LexiconMatcher {
+
+    @FunctionalInterface
+    public interface MatchHandler {
+        void onMatch(int patternId, int start, int end);
+    }
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final int patternCount;
+    private final int[] patternLength;
+    private final boolean[] boundedStart;
+    private final boolean[] boundedEnd;
+
+    // Goto function in CSR form: the edges of state s are edgeLabels/edgeTargets[edgeStart[s] .. edgeStart[s + 1]),
+    // with labels sorted so a transition is a binary search.
+    private final int[] edgeStart;
+    private final char[] edgeLabels;
+    private final int[] edgeTargets;
+
+    private final int[] fail;
+    private final int[] output;     // pattern ending at this state, or NONE
+    private final int[] outputLink; // nearest state on the fail chain that has an output, or NONE
+
+    /**
+     * Compiles the given entries. Pattern ids are indexes into {@code patterns}; entries that
+     * lower-case to the same text share the id of the first one.
+     */
+    public LexiconMatcher(List<String> patterns) {
+        this.patternCount = patterns.size();
+        this.patternLength = new int[patternCount];
+        this.boundedStart = new boolean[patternCount];
+        this.boundedEnd = new boolean[patternCount];
+
+        TrieBuilder trie = new TrieBuilder();
+        for (int id = 0; id < patternCount; id++) {
+            String pattern = patterns.get(id);
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            patternLength[id] = pattern.length();
+            boundedStart[id] = LexiconTokenizer.isWordChar(pattern.codePointAt(0));
+            boundedEnd[id] = LexiconTokenizer.isWordChar(pattern.codePointBefore(pattern.length()));
+            trie.insert(pattern, id);
+        }
+
+        int states = trie.size;
+        this.edgeStart = new int[states + 1];
+        for (int s = 0; s < states; s++) {
+            edgeStart[s + 1] = edgeStart[s] + trie.childCount[s];
+        }
+        this.edgeLabels = new char[edgeStart[states]];
+        this.edgeTargets = new int[edgeStart[states]];
+        for (int s = 0; s < states; s++) {
+            System.arraycopy(trie.childLabels[s], 0, edgeLabels, edgeStart[s], trie.childCount[s]);
+            System.arraycopy(trie.childTargets[s], 0, edgeTargets, edgeStart[s], trie.childCount[s]);
+        }
+        this.output = Arrays.copyOf(trie.output, states);
+        this.fail = new int[states];
+        this.outputLink = new int[states];
+        Arrays.fill(outputLink, NONE);
+        computeFailureLinks();
+    }
+
+    /** Number of states in the automaton, useful for logging build sizes. */
+    public int stateCount() {
+        return fail.length;
+    }
+
+    /** Reports every boundary-respecting occurrence of a lexicon entry in {@code text}. */
+    public void forEachMatch(CharSequence text, MatchHandler handler) {
+        int state = ROOT;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char ch = Character.toLowerCase(text.charAt(i));
+            int next = transition(state, ch);
+            while (next == NONE && state != ROOT) {
+                state = fail[state];
+                next = transition(state, ch);
+            }
+            state = next == NONE ? ROOT : next;
+
+            int hit = output[state] != NONE ? state : outputLink[state];
+            while (hit != NONE) {
+                int id = output[hit];
+                int end = i + 1;
+                int start = end - patternLength[id];
+                if (onBoundary(text, id, start, end)) {
+                    handler.onMatch(id, start, end);
+                }
+                hit = outputLink[hit];
+            }
+        }
+    }
+
+    /** Returns the ids of all distinct lexicon entries occurring in {@code text}. */
+    public BitSet findAll(CharSequence text) {
+        BitSet matched = new BitSet(patternCount);
+        forEachMatch(text, (id, start, end) -> matched.set(id));
+        return matched;
+    }
+
+    // Word boundaries use the same word-character definition as LexiconTokenizer
+    private boolean onBoundary(CharSequence text, int id, int start, int end) {
+        if (boundedStart[id] && start > 0 && LexiconTokenizer.isWordChar(Character.codePointBefore(text, start))) {
+            return false;
+        }
+        return !boundedEnd[id] || end >= text.length() || !LexiconTokenizer.isWordChar(Character.codePointAt(text, end));
+    }
+
+    private int transition(int state, char ch) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = edgeLabels[mid];
+            if (label < ch) {
+                low = mid + 1;
+            } else if (label > ch) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return NONE;
+    }
+
+    private void computeFailureLinks() {
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+            fail[edgeTargets[e]] = ROOT;
+            queue.add(edgeTargets[e]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                char ch = edgeLabels[e];
+                int child = edgeTargets[e];
+
+                int f = fail[state];
+                int next = transition(f, ch);
+                while (next == NONE && f != ROOT) {
+                    f = fail[f];
+                    next = transition(f, ch);
+                }
+                fail[child] = next == NONE ? ROOT : next;
+                int suffix = fail[child];
+                outputLink[child] = output[suffix] != NONE ? suffix : outputLink[suffix];
+                queue.add(child);
+            }
+        }
+    }
+
+    /** Mutable trie used only while compiling; children are kept sorted by label. */
+    private static final class TrieBuilder {
+        private char[][] childLabels = new char[64][];
+        private int[][] childTargets = new int[64][];
+        private int[] childCount = new int[64];
+        private int[] output = new int[64];
+        private int size;
+
+        TrieBuilder() {
+            newState();
+        }
+
+        void insert(String pattern, int id) {
+            int state = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                state = child(state, Character.toLowerCase(pattern.charAt(i)));
+            }
+            if (output[state] == NONE) {
+                output[state] = id;
+            }
+        }
+
+        private int child(int state, char label) {
+            char[] labels = childLabels[state];
+            int count = childCount[state];
+            int pos = Arrays.binarySearch(labels, 0, count, label);
+            if (pos >= 0) {
+                return childTargets[state][pos];
+            }
+            int created = newState();
+            // newState() may have grown the outer arrays; re-read the rows
+            labels = childLabels[state];
+            int[] targets = childTargets[state];
+            if (count == labels.length) {
+                labels = Arrays.copyOf(labels, count * 2);
+                targets = Arrays.copyOf(targets, count * 2);
+                childLabels[state] = labels;
+                childTargets[state] = targets;
+            }
+            int insertAt = -pos - 1;
+            System.arraycopy(labels, insertAt, labels, insertAt + 1, count - insertAt);
+            System.arraycopy(targets, insertAt, targets, insertAt + 1, count - insertAt);
+            labels[insertAt] = label;
+            targets[insertAt] = created;
+            childCount[state] = count + 1;
+            return created;
+        }
+
+        private int newState() {
+            if (size == output.length) {
+                int capacity = size * 2;
+                childLabels = Arrays.copyOf(childLabels, capacity);
+                childTargets = Arrays.copyOf(childTargets, capacity);
+                childCount = Arrays.copyOf(childCount, capacity);
+                output = Arrays.copyOf(output, capacity);
+            }
+            childLabels[size] = new char[2];
+            childTargets[size] = new int[2];
+            output[size] = NONE;
+            return size++;
+        }
+    }
+}
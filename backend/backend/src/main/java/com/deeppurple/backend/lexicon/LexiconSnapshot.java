@@ -0,0 +1,236 @@
+package com.deeppurple.backend.lexicon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable in-memory view of one model's lexicon: its emotion categories, every distinct word with
+ * the emotions it carries, and the matcher and scorer compiled from them.
+ * <p>
+ * Snapshots are never modified; changes produce a new snapshot ({@link #withAssociations}) that is
+ * swapped in atomically by the owner. {@link #version()} is a fingerprint of the content, so it is
+ * stable across restarts and changes whenever a word or category is added, removed or renamed.
+ * {@link #curatedVersion()} leaves out the associations learned from the classifier, so it only moves when
+ * the categories or the seeded and user-maintained words change. The
+ * matcher is compiled lazily, at most once per snapshot, so a version that never builds a prompt (e.g. one
+ * replaced by the next learned words within seconds) never pays for it.
+ */
+public final class LexiconSnapshot {
+    private final Long modelId;
+    private final String modelName;
+    private final List<String> emotions;
+    private final long[] categoryIds;
+    private final Map<String, Integer> ordinalByName = new HashMap<>(); // Lower-cased emotion name -> ordinal
+    private final long version;
+    private final long curatedVersion;
+    private volatile LexiconMatcher matcher; // Compiled on first use, once per snapshot
+    private final EmotionScorer scorer;
+
+    private LexiconSnapshot(Long modelId, String modelName, List<String> emotions, long[] categoryIds, EmotionScorer scorer,
+                            long curatedVersion) {
+        this.modelId = modelId;
+        this.modelName = modelName;
+        this.emotions = emotions;
+        this.categoryIds = categoryIds;
+        this.scorer = scorer;
+        for (int ordinal = 0; ordinal < emotions.size(); ordinal++) {
+            ordinalByName.putIfAbsent(emotions.get(ordinal).toLowerCase(Locale.ROOT), ordinal);
+        }
+
+        long fingerprint = 0;
+        for (String emotion : emotions) {
+            fingerprint += mix(emotion.hashCode());
+        }
+        for (int id = 0; id < scorer.wordCount(); id++) {
+            for (int ordinal : scorer.ordinals(id)) {
+                fingerprint += mix(31L * scorer.word(id).hashCode() + emotions.get(ordinal).hashCode());
+            }
+        }
+        this.version = fingerprint;
+        this.curatedVersion = curatedVersion;
+    }
+
+    public static Builder builder(Long modelId, String modelName) {
+        return new Builder(modelId, modelName);
+    }
+
+    public Long modelId() {
+        return modelId;
+    }
+
+    public String modelName() {
+        return modelName;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /** Fingerprint of the categories and curated words only; unchanged when learned associations are added. */
+    public long curatedVersion() {
+        return curatedVersion;
+    }
+
+    /** Emotion names in ordinal order. */
+    public List<String> emotions() {
+        return emotions;
+    }
+
+    /** Database id of the emotion category with the given ordinal. */
+    public long categoryId(int ordinal) {
+        return categoryIds[ordinal];
+    }
+
+    /** Ordinal of the emotion with the given name, ignoring case, or -1. */
+    public int ordinalOf(String emotion) {
+        if (emotion == null) {
+            return -1;
+        }
+        return ordinalByName.getOrDefault(emotion.strip().toLowerCase(Locale.ROOT), -1);
+    }
+
+    /** Distinct lower-cased words; a word's index is its id in the scorer and its pattern id in {@link #matcher()}. */
+    public List<String> words() {
+        return scorer.words();
+    }
+
+    /** Lower-cased word with the given id, as reported by {@link #matcher()}. */
+    public String word(int wordId) {
+        return scorer.word(wordId);
+    }
+
+    public int[] ordinalsOf(int wordId) {
+        return scorer.ordinals(wordId);
+    }
+
+    public boolean containsWord(CharSequence text, int start, int end) {
+        return scorer.contains(text, start, end);
+    }
+
+    public LexiconMatcher matcher() {
+        LexiconMatcher compiled = matcher;
+        if (compiled == null) {
+            synchronized (this) {
+                compiled = matcher;
+                if (compiled == null) {
+                    compiled = new LexiconMatcher(scorer.words());
+                    matcher = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    public EmotionScorer scorer() {
+        return scorer;
+    }
+
+    /** Copy-on-write: a new snapshot with the given learned word to emotion-ordinal pairs added. */
+    public LexiconSnapshot withAssociations(Map<String, int[]> additions) {
+        Builder builder = toBuilder();
+        additions.forEach((word, ordinals) -> {
+            for (int ordinal : ordinals) {
+                builder.addLearned(word, ordinal);
+            }
+        });
+        return builder.build();
+    }
+
+    // The copied words keep this snapshot's curated version whether they were curated or learned
+    private Builder toBuilder() {
+        Builder builder = new Builder(modelId, modelName);
+        for (int ordinal = 0; ordinal < emotions.size(); ordinal++) {
+            builder.emotion(emotions.get(ordinal), categoryIds[ordinal]);
+        }
+        for (int id = 0; id < scorer.wordCount(); id++) {
+            for (int ordinal : scorer.ordinals(id)) {
+                builder.addLearned(scorer.word(id), ordinal);
+            }
+        }
+        builder.curatedFingerprint = curatedVersion;
+        return builder;
+    }
+
+    private static long mix(long value) {
+        value *= 0x9E3779B97F4A7C15L;
+        return value ^ (value >>> 32);
+    }
+
+    public static final class Builder {
+        private final Long modelId;
+        private final String modelName;
+        private final List<String> emotions = new ArrayList<>();
+        private long[] categoryIds = new long[8];
+        private final Map<String, Integer> ordinalByEmotion = new HashMap<>();
+        // Pending (word, ordinal) pairs; the scorer is only built once all categories are known
+        private final List<String> pendingWords = new ArrayList<>();
+        private int[] pendingOrdinals = new int[64];
+        private long curatedFingerprint;
+
+        private Builder(Long modelId, String modelName) {
+            this.modelId = modelId;
+            this.modelName = modelName;
+        }
+
+        /** Registers an emotion category; returns its ordinal. */
+        public int emotion(String emotion, long categoryId) {
+            Integer existing = ordinalByEmotion.get(emotion);
+            if (existing != null) {
+                return existing;
+            }
+            int ordinal = emotions.size();
+            if (ordinal == categoryIds.length) {
+                categoryIds = Arrays.copyOf(categoryIds, ordinal * 2);
+            }
+            emotions.add(emotion);
+            categoryIds[ordinal] = categoryId;
+            curatedFingerprint += mix(emotion.hashCode());
+            ordinalByEmotion.put(emotion, ordinal);
+            return ordinal;
+        }
+
+        public Builder add(String word, String emotion) {
+            Integer ordinal = ordinalByEmotion.get(emotion);
+            return ordinal == null ? this : add(word, ordinal);
+        }
+
+        public Builder add(String word, int ordinal) {
+            if (word != null && !word.isEmpty() && ordinal >= 0 && ordinal < emotions.size()) {
+                curatedFingerprint += mix(31L * word.toLowerCase(Locale.ROOT).hashCode() + emotions.get(ordinal).hashCode());
+            }
+            return addLearned(word, ordinal);
+        }
+
+        /** Adds an association learned from the classifier; it does not change the curated version. */
+        public Builder addLearned(String word, String emotion) {
+            Integer ordinal = ordinalByEmotion.get(emotion);
+            return ordinal == null ? this : addLearned(word, ordinal);
+        }
+
+        public Builder addLearned(String word, int ordinal) {
+            if (word == null || word.isEmpty()) {
+                return this;
+            }
+            int index = pendingWords.size();
+            if (index == pendingOrdinals.length) {
+                pendingOrdinals = Arrays.copyOf(pendingOrdinals, index * 2);
+            }
+            pendingWords.add(word);
+            pendingOrdinals[index] = ordinal;
+            return this;
+        }
+
+        public LexiconSnapshot build() {
+            EmotionScorer.Builder scorer = EmotionScorer.builder(emotions);
+            for (int i = 0; i < pendingWords.size(); i++) {
+                scorer.add(pendingWords.get(i), pendingOrdinals[i]);
+            }
+            return new LexiconSnapshot(modelId, modelName, List.copyOf(emotions),
+                    Arrays.copyOf(categoryIds, emotions.size()), scorer.build(), curatedFingerprint);
+        }
+    }
+}
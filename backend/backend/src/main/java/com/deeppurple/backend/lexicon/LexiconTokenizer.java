@@ -0,0 +1,112 @@
+package com.deeppurple.backend.lexicon;
+
+/**
+ * Shared tokenizer for lexicon lookups, missing-word extraction and scoring.
+ * <p>
+ * Walks the code points of a {@link CharSequence} once and reports each token as a {@code [start, end)}
+ * span instead of a substring. A token is either a word (a run of letters, digits, combining marks and
+ * underscores) or one whole emoji, including its variation selectors, skin-tone modifiers, keycaps,
+ * flag pairs and zero-width-joiner sequences. Lexicon entries are lower-cased, so consumers compare
+ * spans with {@link Character#toLowerCase(char)} or call {@link #lowerCase} when a String is needed.
+ */
+public final class LexiconTokenizer {
+
+    @FunctionalInterface
+    public interface TokenHandler {
+        void onToken(CharSequence text, int start, int end, boolean emoji);
+    }
+
+    private static final int ZERO_WIDTH_JOINER = 0x200D;
+    private static final int COMBINING_KEYCAP = 0x20E3;
+
+    private LexiconTokenizer() {
+    }
+
+    public static void tokenize(CharSequence text, TokenHandler handler) {
+        tokenize(text, 0, text.length(), handler);
+    }
+
+    /** Tokenizes {@code text[from, to)}; offsets passed to the handler are relative to the whole text. */
+    public static void tokenize(CharSequence text, int from, int to, TokenHandler handler) {
+        int i = from;
+        while (i < to) {
+            int codePoint = Character.codePointAt(text, i);
+            if (isWordChar(codePoint)) {
+                int start = i;
+                i += Character.charCount(codePoint);
+                while (i < to) {
+                    int next = Character.codePointAt(text, i);
+                    if (!isWordChar(next) && !isMark(next)) {
+                        break;
+                    }
+                    i += Character.charCount(next);
+                }
+                handler.onToken(text, start, i, false);
+            } else if (isEmoji(codePoint)) {
+                int start = i;
+                i = emojiEnd(text, i, codePoint, to);
+                handler.onToken(text, start, i, true);
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+    }
+
+    public static boolean isWordChar(int codePoint) {
+        return codePoint == '_' || Character.isLetterOrDigit(codePoint);
+    }
+
+    public static boolean isEmoji(int codePoint) {
+        return Character.getType(codePoint) == Character.OTHER_SYMBOL;
+    }
+
+    /** Lower-cased copy of {@code text[start, end)}; lower-cases char by char like the lexicon keys. */
+    public static String lowerCase(CharSequence text, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(text.charAt(start + i));
+        }
+        return new String(chars);
+    }
+
+    public static String lowerCase(String text) {
+        return lowerCase(text, 0, text.length());
+    }
+
+    private static int emojiEnd(CharSequence text, int start, int first, int to) {
+        int i = start + Character.charCount(first);
+        // Two regional indicators form one flag
+        if (isRegionalIndicator(first) && i < to && isRegionalIndicator(Character.codePointAt(text, i))) {
+            return i + 2;
+        }
+        while (i < to) {
+            int next = Character.codePointAt(text, i);
+            if (isEmojiModifier(next)) {
+                i += Character.charCount(next);
+            } else if (next == ZERO_WIDTH_JOINER && i + 1 < to && isEmoji(Character.codePointAt(text, i + 1))) {
+                int joined = Character.codePointAt(text, i + 1);
+                i += 1 + Character.charCount(joined);
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    // Variation selectors, skin tones, keycaps and tag characters extend the preceding emoji
+    private static boolean isEmojiModifier(int codePoint) {
+        return (codePoint >= 0xFE00 && codePoint <= 0xFE0F)
+                || (codePoint >= 0x1F3FB && codePoint <= 0x1F3FF)
+                || codePoint == COMBINING_KEYCAP
+                || (codePoint >= 0xE0020 && codePoint <= 0xE007F);
+    }
+
+    private static boolean isRegionalIndicator(int codePoint) {
+        return codePoint >= 0x1F1E6 && codePoint <= 0x1F1FF;
+    }
+
+    private static boolean isMark(int codePoint) {
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+}
@@ -0,0 +1,98 @@
+package com.deeppurple.backend.lexicon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Drops tokens that are never worth classifying: numerals, words shorter than a minimum number of code points and
+ * stop words.
+ * <p>
+ * The stop words are held as a sorted array of 64-bit hashes of their lower-cased chars and looked up by binary
+ * search, so a {@link LexiconTokenizer} span is checked without creating a String. Emoji tokens always pass.
+ */
+public final class TokenPrefilter {
+    private final long[] stopWordHashes;
+    private final int minLength;
+
+    private TokenPrefilter(long[] stopWordHashes, int minLength) {
+        this.stopWordHashes = stopWordHashes;
+        this.minLength = minLength;
+    }
+
+    public static TokenPrefilter of(Collection<? extends CharSequence> stopWords, int minLength) {
+        long[] hashes = stopWords.stream()
+                .mapToLong(word -> hash(word, 0, word.length()))
+                .sorted()
+                .distinct()
+                .toArray();
+        return new TokenPrefilter(hashes, Math.max(1, minLength));
+    }
+
+    /** Reads a stop-word list: one word per line, blank lines and lines starting with {@code #} are skipped. */
+    public static List<String> readWords(InputStream in) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String word = line.strip();
+                if (!word.isEmpty() && word.charAt(0) != '#') {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    public int stopWordCount() {
+        return stopWordHashes.length;
+    }
+
+    /** Whether the token {@code text[start, end)} may carry an emotion and is worth classifying. */
+    public boolean isCandidate(CharSequence text, int start, int end, boolean emoji) {
+        if (emoji) {
+            return true;
+        }
+        if (Character.codePointCount(text, start, end) < minLength || isNumeral(text, start, end)) {
+            return false;
+        }
+        return Arrays.binarySearch(stopWordHashes, hash(text, start, end)) < 0;
+    }
+
+    // Digits, optionally followed by an ordinal or plural suffix (1st, 22nd, 3rd, 4th, 1990s)
+    private static boolean isNumeral(CharSequence text, int start, int end) {
+        int i = start;
+        while (i < end) {
+            int codePoint = Character.codePointAt(text, i);
+            if (!Character.isDigit(codePoint) && codePoint != '_') {
+                break;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (i == start || !Character.isDigit(Character.codePointBefore(text, i))) {
+            return false;
+        }
+        return switch (LexiconTokenizer.lowerCase(text, i, end)) {
+            case "", "s", "st", "nd", "rd", "th" -> true;
+            default -> false;
+        };
+    }
+
+    // FNV-1a over the lower-cased UTF-16 chars, then a 64-bit finalizer
+    private static long hash(CharSequence text, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash ^= Character.toLowerCase(text.charAt(i));
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,17 @@
+package com.deeppurple.backend.repository;
+
+import com.deeppurple.backend.entity.AnalysisCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface AnalysisCacheRepository extends JpaRepository<AnalysisCacheEntry, String> {
+
+    // Entries computed against an older lexicon of the model can never be hit again
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AnalysisCacheEntry e WHERE e.modelName = :modelName AND e.lexiconVersion <> :lexiconVersion")
+    int deleteStale(@Param("modelName") String modelName, @Param("lexiconVersion") long lexiconVersion);
+}
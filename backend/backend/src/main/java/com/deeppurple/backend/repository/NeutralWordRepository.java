@@ -0,0 +1,32 @@
+package com.deeppurple.backend.repository;
+
+import com.deeppurple.backend.entity.NeutralWord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface NeutralWordRepository extends JpaRepository<NeutralWord, Long>, NeutralWordRepositoryCustom {
+
+    @Query("SELECT n.word FROM NeutralWord n WHERE n.modelName = :modelName")
+    List<String> findWordsByModelName(@Param("modelName") String modelName);
+
+    @Query("SELECT DISTINCT n.modelName FROM NeutralWord n")
+    List<String> findModelNames();
+
+    // Expired entries: the words get classified again the next time they are seen
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM NeutralWord n WHERE n.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM NeutralWord n WHERE n.modelName = :modelName AND n.word IN :words")
+    int deleteWords(@Param("modelName") String modelName, @Param("words") Collection<String> words);
+}
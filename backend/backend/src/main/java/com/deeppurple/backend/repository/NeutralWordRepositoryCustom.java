@@ -0,0 +1,12 @@
+package com.deeppurple.backend.repository;
+
+import java.util.List;
+
+public interface NeutralWordRepositoryCustom {
+
+    /**
+     * Inserts the model's neutral words in JDBC batches, skipping those that are already stored (also when a
+     * concurrent flush inserts them first).
+     */
+    void insertIgnoringExisting(String modelName, List<String> words);
+}
@@ -0,0 +1,36 @@
+package com.deeppurple.backend.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Plain JDBC: one duplicate must not roll back the whole batch, as it does with saveAll
+public class NeutralWordRepositoryCustomImpl implements NeutralWordRepositoryCustom {
+    private static final String INSERT_SQL = "INSERT INTO neutral_words (model_name, word, created_at) "
+            + "VALUES (?, ?, ?) ON CONFLICT (model_name, word) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public NeutralWordRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                           @Value("${analysis.jdbc.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public void insertIgnoringExisting(String modelName, List<String> words) {
+        if (words.isEmpty()) {
+            return;
+        }
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, words, batchSize, (statement, word) -> {
+            statement.setString(1, modelName);
+            statement.setString(2, word);
+            statement.setTimestamp(3, createdAt);
+        });
+    }
+}
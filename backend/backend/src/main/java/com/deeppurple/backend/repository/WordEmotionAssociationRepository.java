@@ -7,11 +7,14 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 import java.util.Optional;
 
-public interface WordEmotionAssociationRepository extends JpaRepository<WordEmotionAssociation, Long> {
+public interface WordEmotionAssociationRepository extends JpaRepository<WordEmotionAssociation, Long>, WordEmotionAssociationRepositoryCustom {
     List<WordEmotionAssociation> findByEmotionCategory_ModelId(Long modelId);
 
     List<WordEmotionAssociation> findByEmotionCategoryIn(List<EmotionCategory> emotionCategories);
 
+    // Learned and user-added words only; predefined words are read from the compiled lexicon files
+    List<WordEmotionAssociation> findByEmotionCategoryInAndPredefinedFalse(List<EmotionCategory> emotionCategories);
+
     Optional<WordEmotionAssociation> findByWordAndEmotionCategory(String word, EmotionCategory emotionCategory);
 
 }
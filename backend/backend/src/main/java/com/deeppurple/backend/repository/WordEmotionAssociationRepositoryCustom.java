@@ -0,0 +1,15 @@
+package com.deeppurple.backend.repository;
+
+import java.util.List;
+
+public interface WordEmotionAssociationRepositoryCustom {
+
+    record NewAssociation(String word, long emotionCategoryId) {
+    }
+
+    /**
+     * Inserts the associations in multi-row statements, skipping those that already exist (also when a concurrent request
+     * inserts them first). Returns, per association, whether this call inserted it.
+     */
+    boolean[] insertIgnoringExisting(List<NewAssociation> associations, boolean predefined, boolean learned);
+}
@@ -0,0 +1,50 @@
+package com.deeppurple.backend.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Plain JDBC: IDENTITY ids keep Hibernate from batching inserts, and ON CONFLICT replaces a lookup per word.
+// Rows go out as multi-row inserts whose RETURNING clause lists exactly the rows written, since batch update
+// counts are unreliable (drivers that rewrite batches only report SUCCESS_NO_INFO).
+public class WordEmotionAssociationRepositoryCustomImpl implements WordEmotionAssociationRepositoryCustom {
+    private static final String INSERT_PREFIX = "INSERT INTO word_emotion_associations (word, predefined, learned, emotion_category_id) VALUES ";
+    private static final String INSERT_SUFFIX = " ON CONFLICT (word, emotion_category_id) DO NOTHING RETURNING word, emotion_category_id";
+    private static final int MAX_ROWS_PER_STATEMENT = 16_000; // 4 parameters per row, within Postgres' 65535 per statement
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public WordEmotionAssociationRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                                      @Value("${analysis.jdbc.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_ROWS_PER_STATEMENT));
+    }
+
+    @Override
+    public boolean[] insertIgnoringExisting(List<NewAssociation> associations, boolean predefined, boolean learned) {
+        boolean[] inserted = new boolean[associations.size()];
+        for (int from = 0; from < associations.size(); from += batchSize) {
+            List<NewAssociation> chunk = associations.subList(from, Math.min(from + batchSize, associations.size()));
+            String sql = INSERT_PREFIX + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?, ?)")) + INSERT_SUFFIX;
+            Set<NewAssociation> written = new HashSet<>(jdbcTemplate.query(sql, statement -> {
+                int parameter = 1;
+                for (NewAssociation association : chunk) {
+                    statement.setString(parameter++, association.word());
+                    statement.setBoolean(parameter++, predefined);
+                    statement.setBoolean(parameter++, learned);
+                    statement.setLong(parameter++, association.emotionCategoryId());
+                }
+            }, (row, rowNum) -> new NewAssociation(row.getString(1), row.getLong(2))));
+            for (int i = 0; i < chunk.size(); i++) {
+                // A row listed twice is written once; only its first occurrence counts as inserted
+                inserted[from + i] = written.remove(chunk.get(i));
+            }
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,295 @@
+package com.deeppurple.backend.service;
+
+import com.deeppurple.backend.dto.EmotionAnalysis;
+import com.deeppurple.backend.entity.AnalysisCacheEntry;
+import com.deeppurple.backend.lexicon.LexiconSnapshot;
+import com.deeppurple.backend.repository.AnalysisCacheRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed cache of analysis results.
+ * <p>
+ * The key is a SHA-256 of the normalized content (NFC, whitespace collapsed, trimmed), the model name and the
+ * curated version of the model's lexicon snapshot, so a change to its categories or curated words makes older
+ * entries unreachable. Words learned in the background do not: they arrive every few seconds and would otherwise
+ * keep the cache empty. Results are kept in a bounded Caffeine tier and in the {@code analysis_cache} table, which
+ * survives restarts; entries of older curated versions are deleted from the table the first time a model stores a
+ * result under a new version.
+ * Lexicon-only fallback results (no provider answered) are returned but never stored, so a retry asks the providers again.
+ */
+@Service
+public class AnalysisCacheService {
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisCacheService.class);
+    public static final String HIT = "hit";
+    public static final String MISS = "miss";
+    public static final String COALESCED = "coalesced"; // joined an identical analysis already in flight
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final AnalysisCacheRepository repository;
+    private final LexiconSnapshotService lexiconSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final boolean persistent;
+    private final Cache<String, EmotionAnalysis> memory;
+    private final Map<String, Long> purgedVersions = new ConcurrentHashMap<>(); // model name -> last version purged for
+    private final Map<String, Mono<EmotionAnalysis>> inFlight = new ConcurrentHashMap<>(); // cache key -> shared analysis
+
+    public AnalysisCacheService(AnalysisCacheRepository repository, LexiconSnapshotService lexiconSnapshotService, ObjectMapper objectMapper,
+                                @Value("${analysis.cache.maximum-size:10000}") long maximumSize,
+                                @Value("${analysis.cache.expire-after-write:6h}") Duration expireAfterWrite,
+                                @Value("${analysis.cache.persistent:true}") boolean persistent) {
+        this.repository = repository;
+        this.lexiconSnapshotService = lexiconSnapshotService;
+        this.objectMapper = objectMapper;
+        this.persistent = persistent;
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    private record CacheKey(String hash, long lexiconVersion) {
+    }
+
+    // Result of a text a batch call analyzes, as registered in inFlight for concurrent requests to join
+    private record Pending(Sinks.One<EmotionAnalysis> sink, Mono<EmotionAnalysis> result) {
+    }
+
+    // Returns the cached result (marked "hit") or runs the analysis and caches its result (marked "miss").
+    // Concurrent misses on the same key share one analysis (single flight); the callers that joined it are marked "coalesced".
+    public Mono<EmotionAnalysis> getOrAnalyze(String content, String modelName, Supplier<Mono<EmotionAnalysis>> analysis) {
+        return cacheKey(content, modelName)
+                .flatMap(key -> lookup(key)
+                        .map(result -> withStatus(result, HIT))
+                        .switchIfEmpty(Mono.defer(() -> {
+                            boolean[] leader = new boolean[1];
+                            Mono<EmotionAnalysis> shared = inFlight.computeIfAbsent(key.hash(), hash -> {
+                                leader[0] = true;
+                                // cache() keeps the analysis running for the other callers if the first one cancels
+                                return analysis.get()
+                                        .flatMap(result -> store(key, modelName, result).thenReturn(result))
+                                        .doFinally(signal -> inFlight.remove(hash))
+                                        .cache();
+                            });
+                            return shared.map(result -> withStatus(result, leader[0] ? MISS : COALESCED));
+                        })));
+    }
+
+    // Batch variant of getOrAnalyze: every text is looked up on its own (one table query for the whole batch), texts
+    // already being analyzed by another request are joined, and only the remaining texts go to a single call of the
+    // batch analysis. Its results are stored per text, so a retried upload is answered from the cache.
+    public Mono<List<EmotionAnalysis>> getOrAnalyzeAll(List<String> contents, String modelName,
+                                                       Function<List<String>, Mono<List<EmotionAnalysis>>> analysis) {
+        return lexiconSnapshotService.getSnapshot(modelName)
+                .flatMap(lexicon -> {
+                    List<CacheKey> keys = contents.stream().map(content -> cacheKey(content, modelName, lexicon)).toList();
+                    return lookupAll(keys).flatMap(cached -> {
+                        List<Mono<EmotionAnalysis>> results = new ArrayList<>(keys.size());
+                        Map<Integer, Pending> led = new LinkedHashMap<>(); // index -> text this call analyzes
+                        for (int i = 0; i < keys.size(); i++) {
+                            CacheKey key = keys.get(i);
+                            EmotionAnalysis hit = cached.get(key.hash());
+                            if (hit != null) {
+                                results.add(Mono.just(withStatus(hit, HIT)));
+                                continue;
+                            }
+                            Sinks.One<EmotionAnalysis> sink = Sinks.one();
+                            Pending pending = new Pending(sink, sink.asMono());
+                            Mono<EmotionAnalysis> shared = inFlight.computeIfAbsent(key.hash(), hash -> pending.result());
+                            boolean leader = shared == pending.result();
+                            if (leader) {
+                                led.put(i, pending);
+                            }
+                            results.add(shared.map(result -> withStatus(result, leader ? MISS : COALESCED)));
+                        }
+                        return analyzeLed(contents, keys, led, modelName, analysis)
+                                .then(Flux.concat(results).collectList());
+                    });
+                });
+    }
+
+    // Runs the batch analysis for the texts this call leads and hands each result to the requests waiting for it
+    private Mono<Void> analyzeLed(List<String> contents, List<CacheKey> keys, Map<Integer, Pending> led,
+                                  String modelName, Function<List<String>, Mono<List<EmotionAnalysis>>> analysis) {
+        if (led.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Integer> indexes = new ArrayList<>(led.keySet());
+        return Mono.defer(() -> analysis.apply(indexes.stream().map(contents::get).toList()))
+                .flatMapMany(analyzed -> Flux.range(0, indexes.size())
+                        .concatMap(position -> {
+                            int index = indexes.get(position);
+                            CacheKey key = keys.get(index);
+                            EmotionAnalysis result = analyzed.get(position);
+                            return store(key, modelName, result)
+                                    .doFinally(signal -> {
+                                        Pending pending = led.get(index);
+                                        inFlight.remove(key.hash(), pending.result());
+                                        pending.sink().tryEmitValue(result);
+                                    });
+                        }))
+                .then()
+                .doFinally(signal -> {
+                    // On error or cancellation, release the texts that were not answered so later requests do not wait on them
+                    RuntimeException failure = new RuntimeException("Batch analysis did not complete: " + signal);
+                    led.forEach((index, pending) -> {
+                        if (pending.sink().tryEmitError(failure) == Sinks.EmitResult.OK) {
+                            inFlight.remove(keys.get(index).hash(), pending.result());
+                        }
+                    });
+                });
+    }
+
+    private Mono<EmotionAnalysis> lookup(CacheKey key) {
+        EmotionAnalysis cached = memory.getIfPresent(key.hash());
+        if (cached != null || !persistent) {
+            return Mono.justOrEmpty(cached);
+        }
+        return Mono.fromCallable(() -> repository.findById(key.hash())
+                        .map(entry -> {
+                            EmotionAnalysis result = fromJson(entry.getResult());
+                            memory.put(key.hash(), result);
+                            return result;
+                        })
+                        .orElse(null))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(error -> {
+                    logger.warn("Analysis cache lookup failed: {}", error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    // Memory tier first, then one query for the rest; keyed by hash
+    private Mono<Map<String, EmotionAnalysis>> lookupAll(List<CacheKey> keys) {
+        Map<String, EmotionAnalysis> found = new HashMap<>();
+        List<String> remaining = new ArrayList<>();
+        for (CacheKey key : keys) {
+            EmotionAnalysis cached = memory.getIfPresent(key.hash());
+            if (cached != null) {
+                found.put(key.hash(), cached);
+            } else {
+                remaining.add(key.hash());
+            }
+        }
+        if (remaining.isEmpty() || !persistent) {
+            return Mono.just(found);
+        }
+        return Mono.fromCallable(() -> {
+                    for (AnalysisCacheEntry entry : repository.findAllById(remaining)) {
+                        EmotionAnalysis result = fromJson(entry.getResult());
+                        memory.put(entry.getCacheKey(), result);
+                        found.put(entry.getCacheKey(), result);
+                    }
+                    return found;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(error -> {
+                    logger.warn("Analysis cache lookup failed: {}", error.getMessage());
+                    return Mono.just(found);
+                });
+    }
+
+    // Stored under the key the analysis started with. If the curated lexicon has meanwhile changed, lookups can no
+    // longer reach that key and the result is not stored.
+    private Mono<Void> store(CacheKey key, String modelName, EmotionAnalysis result) {
+        if (OpenAIService.LEXICON_MODEL_VERSION.equals(result.modelVersion())) {
+            return Mono.empty(); // Fallback for a failed provider call; the next request should ask the providers again
+        }
+        return lexiconSnapshotService.getSnapshot(modelName)
+                .filter(lexicon -> lexicon.curatedVersion() == key.lexiconVersion())
+                .flatMap(lexicon -> {
+                    memory.put(key.hash(), result);
+                    if (!persistent) {
+                        return Mono.<Void>empty();
+                    }
+                    return Mono.fromRunnable(() -> {
+                                if (!Objects.equals(purgedVersions.put(modelName, key.lexiconVersion()), key.lexiconVersion())) {
+                                    int deleted = repository.deleteStale(modelName, key.lexiconVersion());
+                                    logger.info("Removed {} cached analyses of older lexicon versions of model '{}'", deleted, modelName);
+                                }
+                                AnalysisCacheEntry entry = new AnalysisCacheEntry();
+                                entry.setCacheKey(key.hash());
+                                entry.setModelName(modelName);
+                                entry.setLexiconVersion(key.lexiconVersion());
+                                entry.setResult(toJson(result));
+                                repository.save(entry);
+                            })
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .then();
+                })
+                .onErrorResume(error -> {
+                    logger.warn("Could not store analysis in cache: {}", error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<CacheKey> cacheKey(String content, String modelName) {
+        return lexiconSnapshotService.getSnapshot(modelName)
+                .map(lexicon -> cacheKey(content, modelName, lexicon));
+    }
+
+    private static CacheKey cacheKey(String content, String modelName, LexiconSnapshot lexicon) {
+        return new CacheKey(hash(normalize(content), modelName, lexicon.curatedVersion()), lexicon.curatedVersion());
+    }
+
+    private static String normalize(String content) {
+        return WHITESPACE.matcher(Normalizer.normalize(content, Normalizer.Form.NFC)).replaceAll(" ").trim();
+    }
+
+    private static String hash(String normalizedContent, String modelName, long lexiconVersion) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((modelName + '\u0000' + lexiconVersion + '\u0000').getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(normalizedContent.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static EmotionAnalysis withStatus(EmotionAnalysis result, String status) {
+        return result.withCacheStatus(status);
+    }
+
+    private String toJson(EmotionAnalysis result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error serializing analysis result: " + e.getMessage(), e);
+        }
+    }
+
+    private EmotionAnalysis fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, EmotionAnalysis.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error parsing cached analysis result: " + e.getMessage(), e);
+        }
+    }
+}
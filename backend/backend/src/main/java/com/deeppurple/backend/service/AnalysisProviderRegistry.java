@@ -0,0 +1,63 @@
+package com.deeppurple.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The emotion analysis providers enabled in this deployment, in tie-break order.
+ * <p>
+ * Per provider, {@code analysis.providers.<name>.enabled} switches it off, {@code weight} scales its confidence
+ * ratings when picking the winning analysis, and {@code max-concurrency} / {@code max-queue} size its
+ * {@link Bulkhead} (defaults under {@code analysis.providers.bulkhead.*}).
+ */
+@Component
+public class AnalysisProviderRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisProviderRegistry.class);
+
+    private final List<EmotionAnalysisProvider> providers;
+    private final Map<String, Double> weights = new HashMap<>();
+    private final Map<String, Bulkhead> bulkheads = new HashMap<>();
+
+    public AnalysisProviderRegistry(List<EmotionAnalysisProvider> available, Environment environment,
+                                    @Value("${analysis.providers.bulkhead.max-concurrency:16}") int defaultMaxConcurrency,
+                                    @Value("${analysis.providers.bulkhead.max-queue:64}") int defaultMaxQueue) {
+        this.providers = available.stream()
+                .filter(provider -> environment.getProperty(key(provider, "enabled"), Boolean.class, true))
+                .toList();
+        for (EmotionAnalysisProvider provider : providers) {
+            weights.put(provider.name(), environment.getProperty(key(provider, "weight"), Double.class, 1.0));
+            bulkheads.put(provider.name(), new Bulkhead(provider.name(),
+                    environment.getProperty(key(provider, "max-concurrency"), Integer.class, defaultMaxConcurrency),
+                    environment.getProperty(key(provider, "max-queue"), Integer.class, defaultMaxQueue)));
+        }
+        logger.info("Emotion analysis providers enabled: {} (weights {})",
+                providers.stream().map(EmotionAnalysisProvider::name).toList(), weights);
+    }
+
+    /** Enabled providers, in tie-break order. */
+    public List<EmotionAnalysisProvider> providers() {
+        return providers;
+    }
+
+    public double weight(EmotionAnalysisProvider provider) {
+        return weights.getOrDefault(provider.name(), 1.0);
+    }
+
+    /** Runs the call within the provider's bulkhead. */
+    public <T> Mono<T> isolate(EmotionAnalysisProvider provider, Supplier<Mono<T>> call) {
+        return bulkheads.get(provider.name()).call(call);
+    }
+
+    private static String key(EmotionAnalysisProvider provider, String property) {
+        return "analysis.providers." + provider.name() + "." + property;
+    }
+}
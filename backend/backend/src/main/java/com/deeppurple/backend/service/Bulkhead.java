@@ -0,0 +1,94 @@
+package com.deeppurple.backend.service;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * Limits the calls in flight to one provider. Calls over the limit wait in a bounded FIFO queue and are
+ * rejected once it is full, so a slow provider holds at most its own permits and queue slots instead of piling
+ * up connections and pending requests shared with the others.
+ */
+public final class Bulkhead {
+    private final String name;
+    private final int maxConcurrency;
+    private final int maxQueue;
+    private final Deque<Waiter> waiting = new ArrayDeque<>();
+    private int active;
+
+    private static final class Waiter {
+        private final MonoSink<Bulkhead> sink;
+        private boolean granted;
+
+        private Waiter(MonoSink<Bulkhead> sink) {
+            this.sink = sink;
+        }
+    }
+
+    public Bulkhead(String name, int maxConcurrency, int maxQueue) {
+        this.name = name;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxQueue = Math.max(0, maxQueue);
+    }
+
+    /** Runs the call once a permit is free; the permit is returned when the call completes, fails or is cancelled. */
+    public <T> Mono<T> call(Supplier<Mono<T>> call) {
+        return Mono.usingWhen(acquire(), permit -> call.get(),
+                permit -> release(),
+                (permit, error) -> release(),
+                permit -> release());
+    }
+
+    private Mono<Void> release() {
+        return Mono.fromRunnable(this::releasePermit);
+    }
+
+    private Mono<Bulkhead> acquire() {
+        return Mono.create(sink -> {
+            Waiter waiter;
+            synchronized (this) {
+                if (active < maxConcurrency) {
+                    active++;
+                    waiter = null;
+                } else if (waiting.size() < maxQueue) {
+                    waiter = new Waiter(sink);
+                    waiting.addLast(waiter);
+                } else {
+                    sink.error(new RuntimeException("Bulkhead full for provider " + name
+                            + " (" + maxConcurrency + " in flight, " + maxQueue + " waiting)"));
+                    return;
+                }
+            }
+            if (waiter == null) {
+                sink.success(this);
+                return;
+            }
+            sink.onCancel(() -> {
+                synchronized (this) {
+                    if (!waiter.granted) {
+                        waiting.remove(waiter);
+                        return;
+                    }
+                }
+                releasePermit(); // Cancelled while the permit was being handed over
+            });
+        });
+    }
+
+    // Hands the permit to the next waiter, or frees it
+    private void releasePermit() {
+        Waiter next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                active--;
+                return;
+            }
+            next.granted = true;
+        }
+        next.sink.success(this);
+    }
+}
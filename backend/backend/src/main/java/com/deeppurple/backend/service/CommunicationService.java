@@ -1,25 +1,37 @@
 package com.deeppurple.backend.service;
 
+import com.deeppurple.backend.dto.AnalysisEvent;
+import com.deeppurple.backend.dto.EmotionAnalysis;
 import com.deeppurple.backend.entity.Communication;
 import com.deeppurple.backend.entity.EmotionDetails;
 import com.deeppurple.backend.repository.CommunicationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class CommunicationService {
+    private static final Logger logger = LoggerFactory.getLogger(CommunicationService.class);
+    public static final String MODE_FULL = "full";
+    public static final String MODE_LEXICON = "lexicon";
+
     private final CommunicationRepository repository;
     private final OpenAIService openAIService;
     private final MissingEmotionService missingEmotionService;
+    private final AnalysisCacheService analysisCacheService;
 
-    public CommunicationService(CommunicationRepository repository, OpenAIService openAIService, MissingEmotionService missingEmotionService) {
+    public CommunicationService(CommunicationRepository repository, OpenAIService openAIService, MissingEmotionService missingEmotionService,
+                                AnalysisCacheService analysisCacheService) {
         this.repository = repository;
         this.openAIService = openAIService;
         this.missingEmotionService = missingEmotionService;
+        this.analysisCacheService = analysisCacheService;
     }
 
     // Retrieve all communications
@@ -29,37 +41,80 @@ public class CommunicationService {
 
     // Save new communication with model and classification type
     public Mono<Communication> saveCommunication(String modelName, Communication communication) {
-        // Step 1: Ensure missing emotions are identified and stored first
-        return missingEmotionService.processMissingEmotions(communication.getContent(), modelName)
-                .then(Mono.defer(() -> { // Step 2: Call OpenAI analysis only after step 1 is completed
-                    return openAIService.analyzeEmotionWithModel(communication.getContent(), modelName)
-                            .map(emotionAnalysis -> {
-                                // Extract values from the emotion analysis
-                                Map<String, Object> primaryEmotionData = (Map<String, Object>) emotionAnalysis.get("primaryEmotion");
-                                String primaryEmotion = (String) primaryEmotionData.get("emotion");
-                                double primaryEmotionPercentage = (double) primaryEmotionData.get("percentage");
-
-                                List<Map<String, Object>> secondaryEmotionsData = (List<Map<String, Object>>) emotionAnalysis.get("secondaryEmotions");
-                                List<EmotionDetails> secondaryEmotions = secondaryEmotionsData.stream()
-                                        .map(emotion -> new EmotionDetails((String) emotion.get("emotion"), (double) emotion.get("percentage")))
-                                        .collect(Collectors.toList());
-
-                                String summary = (String) emotionAnalysis.get("summary");
-                                String modelVersion = (String) emotionAnalysis.get("modelVersion");
-                                double confidenceRating = (double) emotionAnalysis.get("confidenceRating");
-
-                                // Set the fields in the communication object
-                                communication.setPrimaryEmotion(new EmotionDetails(primaryEmotion, primaryEmotionPercentage));
-                                communication.setSecondaryEmotions(secondaryEmotions);
-                                communication.setSummary(summary);
-                                communication.setConfidenceRating(confidenceRating);
-                                communication.setModelVersion(modelVersion);
-                                System.out.println("Primary Emotion: " + communication.getPrimaryEmotion());
-                                System.out.println("Secondary Emotions: " + communication.getSecondaryEmotions());
-
-                                return repository.save(communication);
-                            });
-                }));
+        return saveCommunication(modelName, communication, MODE_FULL);
+    }
+
+    // Save new communication; "lexicon" mode skips the missing-word classification and the LLM providers
+    public Mono<Communication> saveCommunication(String modelName, Communication communication, String mode) {
+        Mono<EmotionAnalysis> analysis;
+        if (MODE_LEXICON.equals(mode)) {
+            analysis = openAIService.analyzeEmotionWithLexicon(communication.getContent(), modelName);
+        } else {
+            // Resubmitted content is answered from the analysis cache, and identical concurrent submissions share one run
+            analysis = analysisCacheService.getOrAnalyze(communication.getContent(), modelName, () ->
+                    // Unknown words are classified in the background; the analysis uses the current lexicon
+                    missingEmotionService.enqueueUnknownWords(communication.getContent(), modelName)
+                            .then(Mono.defer(() -> openAIService.analyzeEmotionWithModel(communication.getContent(), modelName))));
+        }
+        return analysis.map(emotionAnalysis -> applyAnalysis(communication, emotionAnalysis));
+    }
+
+    // Save a batch of communications in full mode: unknown words of all texts are queued together, then the texts
+    // the analysis cache cannot answer are analyzed in packed provider requests; each communication still gets its own row
+    public Mono<List<Communication>> saveCommunications(String modelName, List<Communication> communications) {
+        List<String> contents = communications.stream().map(Communication::getContent).toList();
+        return missingEmotionService.enqueueUnknownWords(String.join("\n", contents), modelName)
+                .then(Mono.defer(() -> analysisCacheService.getOrAnalyzeAll(contents, modelName,
+                        misses -> openAIService.analyzeBatchWithModel(misses, modelName))))
+                .map(analyses -> {
+                    List<Communication> saved = new ArrayList<>(communications.size());
+                    for (int i = 0; i < communications.size(); i++) {
+                        saved.add(applyAnalysis(communications.get(i), analyses.get(i)));
+                    }
+                    return saved;
+                });
+    }
+
+    // Streams the analysis stages as they complete: lexicon counts straight away, then (full mode) each provider's
+    // result as it arrives, then the merged analysis and finally the persisted communication
+    public Flux<AnalysisEvent> streamCommunication(String modelName, Communication communication, String mode) {
+        String content = communication.getContent();
+        Flux<AnalysisEvent> stages;
+        if (MODE_LEXICON.equals(mode)) {
+            stages = openAIService.analyzeEmotionWithLexicon(content, modelName).map(AnalysisEvent::analysis).flux();
+        } else {
+            stages = missingEmotionService.enqueueUnknownWords(content, modelName)
+                    .thenMany(Flux.defer(() -> openAIService.streamEmotionWithModel(content, modelName)));
+        }
+        return openAIService.lexiconCounts(content, modelName)
+                .map(AnalysisEvent::lexicon)
+                .concatWith(stages)
+                .concatMap(event -> {
+                    if (!(event.getData() instanceof EmotionAnalysis emotionAnalysis) || !AnalysisEvent.ANALYSIS.equals(event.getType())) {
+                        return Flux.just(event);
+                    }
+                    return Flux.concat(Mono.just(event),
+                            Mono.fromCallable(() -> AnalysisEvent.result(applyAnalysis(communication, emotionAnalysis))));
+                })
+                .onErrorResume(error -> Mono.just(AnalysisEvent.error(error.getMessage())));
+    }
+
+    private Communication applyAnalysis(Communication communication, EmotionAnalysis emotionAnalysis) {
+        communication.setPrimaryEmotion(toDetails(emotionAnalysis.primaryEmotion()));
+        communication.setSecondaryEmotions(emotionAnalysis.secondaryEmotions().stream()
+                .map(CommunicationService::toDetails)
+                .collect(Collectors.toList()));
+        communication.setSummary(emotionAnalysis.summary());
+        communication.setConfidenceRating(emotionAnalysis.confidenceRating());
+        communication.setModelVersion(emotionAnalysis.modelVersion());
+        communication.setCacheStatus(emotionAnalysis.cacheStatus());
+        logger.debug("Primary emotion: {}, secondary emotions: {}", communication.getPrimaryEmotion(), communication.getSecondaryEmotions());
+
+        return repository.save(communication);
+    }
+
+    private static EmotionDetails toDetails(EmotionAnalysis.Emotion emotion) {
+        return emotion == null ? null : new EmotionDetails(emotion.emotion(), emotion.percentage());
     }
 
 
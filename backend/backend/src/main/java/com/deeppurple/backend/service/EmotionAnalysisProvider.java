@@ -0,0 +1,29 @@
+package com.deeppurple.backend.service;
+
+import com.deeppurple.backend.dto.EmotionAnalysis;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+
+/**
+ * A source of emotion analyses that takes part in the provider race.
+ * <p>
+ * Implementations are Spring beans; their {@code @Order} is the tie-break order when merging. Each one is enabled,
+ * weighted and isolated in its own bulkhead through {@code analysis.providers.<name>.*} (see
+ * {@link AnalysisProviderRegistry}), so adding a provider needs no change to the routing or merge code.
+ */
+public interface EmotionAnalysisProvider {
+
+    /** Short name used for configuration, health tracking and prompt budgets, e.g. {@code openai}. */
+    String name();
+
+    /** Model version recorded on the analyses this provider produces. */
+    String modelVersion();
+
+    /**
+     * Runs the prompt and binds the JSON answer to {@code type} ({@link EmotionAnalysis} or a batch response).
+     * Implementations that stream should pass primaryEmotion and confidenceRating to {@code onPartial} as soon as
+     * both are known; others may ignore it.
+     */
+    <T> Mono<T> analyze(String prompt, Class<T> type, Consumer<EmotionAnalysis> onPartial);
+}
@@ -26,6 +26,9 @@ public class EmotionCategoryService {
     @Autowired
     private WordEmotionAssociationRepository wordEmotionAssociationRepository;
 
+    @Autowired
+    private LexiconSnapshotService lexiconSnapshotService;
+
     // Add a new emotion category associated with a specific model
     public EmotionCategory addEmotionCategory(Long modelId, String name) {
         // Validate the name
@@ -51,6 +54,7 @@ public class EmotionCategoryService {
 
         // Save the emotion category directly
         emotionCategoryRepository.save(category);
+        lexiconSnapshotService.refresh(modelId);
 
         return category;  // Return the saved category
     }
@@ -70,7 +74,9 @@ public class EmotionCategoryService {
         // Update the emotion name
         category.setEmotion(name);
 
-        return emotionCategoryRepository.save(category);
+        EmotionCategory saved = emotionCategoryRepository.save(category);
+        lexiconSnapshotService.refresh(category.getModel().getId());
+        return saved;
     }
 
     // Delete an emotion category
@@ -81,6 +87,7 @@ public class EmotionCategoryService {
 
         wordEmotionAssociationRepository.deleteAll(category.getWordEmotionAssociations()); // Delete associations
         emotionCategoryRepository.delete(category); // Now delete category
+        lexiconSnapshotService.refresh(category.getModel().getId()); // Applied after commit
     }
 
 
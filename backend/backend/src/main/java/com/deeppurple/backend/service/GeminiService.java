@@ -1,37 +1,54 @@
 package com.deeppurple.backend.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.deeppurple.backend.config.ProviderHttpClients;
+import com.deeppurple.backend.dto.EmotionAnalysis;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.netty.http.client.HttpClient;
 
-import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
-public class GeminiService {
+@Order(2)
+public class GeminiService implements EmotionAnalysisProvider {
     private static final Logger logger = LoggerFactory.getLogger(GeminiService.class);
+    private static final String MODEL_VERSION = "gemini-1.5-flash";
     private final WebClient webClient;
 
-    public GeminiService() {
-        this.webClient = WebClient.builder()
-                .baseUrl("https://generativelanguage.googleapis.com")
+    public GeminiService(ProviderHttpClients providerHttpClients) {
+        this.webClient = providerHttpClients.webClient(ProviderHttpClients.GEMINI)
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .clientConnector(new ReactorClientHttpConnector(
-                        HttpClient.create().responseTimeout(Duration.ofSeconds(10)) // Set timeout as needed
-                ))
                 .build();
     }
 
-    public Mono<Map<String, Object>> analyzeEmotionWithGemini(String prompt) {
+    @Override
+    public String name() {
+        return ProviderHttpClients.GEMINI;
+    }
+
+    @Override
+    public String modelVersion() {
+        return MODEL_VERSION;
+    }
+
+    @Override
+    public <T> Mono<T> analyze(String prompt, Class<T> type, Consumer<EmotionAnalysis> onPartial) {
+        return analyzeEmotionWithGemini(prompt, type, onPartial);
+    }
+
+    // Streams the completion and binds it to the given type; primaryEmotion and confidenceRating are passed to
+    // onPartial as soon as they have streamed
+    public <T> Mono<T> analyzeEmotionWithGemini(String prompt, Class<T> type, Consumer<EmotionAnalysis> onPartial) {
         logger.info("Calling Gemini API with prompt.");
 
 
@@ -50,56 +67,18 @@ public class GeminiService {
                 )
         );
 
-        return webClient.post()
-                .uri(uriBuilder -> uriBuilder.path("/v1beta/models/gemini-1.5-flash:generateContent")
+        Flux<String> deltas = webClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/v1beta/models/" + MODEL_VERSION + ":streamGenerateContent")
+                        .queryParam("alt", "sse")
                         .queryParam("key", apiKey)
                         .build())
+                .accept(MediaType.TEXT_EVENT_STREAM)
                 .bodyValue(requestBody)
                 .retrieve()
-                .bodyToMono(Map.class)
-                .flatMap(this::processApiResponse)
-                .doOnError(error -> {
-                    if (error instanceof Throwable) {
-                        logger.error("Error calling GeminiAI API: {}", ((Throwable) error).getMessage());
-                    } else {
-                        logger.error("Unexpected error calling GeminiAI API: {}", error.toString());
-                    }
-                });
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .mapNotNull(ServerSentEvent::data)
+                .map(StreamingAnalysisParser::geminiDelta);
+        return StreamingAnalysisParser.parse(deltas, type, onPartial)
+                .doOnError(error -> logger.error("Error calling GeminiAI API: {}", error.getMessage()));
     }
-
-    private Mono<Map<String, Object>> processApiResponse(Map<String, Object> response) {
-        logger.info("Gemini API Response: {}", response);
-
-        try {
-            List<Map<String, Object>> candidates = (List<Map<String, Object>>) response.get("candidates");
-            if (candidates == null || candidates.isEmpty()) {
-                return Mono.error(new RuntimeException("No candidates found in Gemini API response"));
-            }
-
-            Map<String, Object> firstCandidate = candidates.get(0);
-            Map<String, Object> content = (Map<String, Object>) firstCandidate.get("content");
-            List<Map<String, Object>> parts = (List<Map<String, Object>>) content.get("parts");
-
-            if (parts == null || parts.isEmpty()) {
-                return Mono.error(new RuntimeException("No parts found in Gemini response content"));
-            }
-
-            // Extract the "text" field, which contains the actual JSON response
-            String jsonText = (String) parts.get(0).get("text");
-
-            // Remove potential Markdown formatting (e.g., ```json ... ```)
-            if (jsonText.startsWith("```json")) {
-                jsonText = jsonText.replace("```json", "").replace("```", "").trim();
-            }
-
-            // Parse the extracted JSON string into a Map
-            ObjectMapper objectMapper = new ObjectMapper();
-            Map<String, Object> parsedResponse = objectMapper.readValue(jsonText, new TypeReference<>() {});
-
-            return Mono.just(parsedResponse);
-        } catch (Exception e) {
-            return Mono.error(new RuntimeException("Error parsing Gemini API response: " + e.getMessage(), e));
-        }
-    }
-
 }
@@ -0,0 +1,183 @@
+package com.deeppurple.backend.service;
+
+import com.deeppurple.backend.config.PredefinedLexicons;
+import com.deeppurple.backend.entity.EmotionCategory;
+import com.deeppurple.backend.entity.Model;
+import com.deeppurple.backend.entity.WordEmotionAssociation;
+import com.deeppurple.backend.lexicon.BinaryLexicon;
+import com.deeppurple.backend.lexicon.LexiconSnapshot;
+import com.deeppurple.backend.repository.ModelRepository;
+import com.deeppurple.backend.repository.WordEmotionAssociationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one immutable {@link LexiconSnapshot} per model so analysis requests never read the lexicon from the database.
+ * Snapshots are warmed at startup and replaced atomically whenever a model, category or association changes.
+ * A model missing from the map is loaded on a worker thread, once for all concurrent requests; a name that matches
+ * no model is remembered for {@code analysis.lexicon.missing-model-ttl} (or until the model is created).
+ */
+@Service
+public class LexiconSnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(LexiconSnapshotService.class);
+
+    private final ModelRepository modelRepository;
+    private final WordEmotionAssociationRepository wordEmotionAssociationRepository;
+    private final PredefinedLexicons predefinedLexicons;
+    private final Map<String, LexiconSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, Mono<Optional<LexiconSnapshot>>> loading = new ConcurrentHashMap<>(); // model name -> shared load
+    private final Cache<String, Boolean> missingModels; // Names no model had when last looked up
+
+    public LexiconSnapshotService(ModelRepository modelRepository, WordEmotionAssociationRepository wordEmotionAssociationRepository,
+                                  PredefinedLexicons predefinedLexicons,
+                                  @Value("${analysis.lexicon.missing-model-ttl:10s}") Duration missingModelTtl) {
+        this.modelRepository = modelRepository;
+        this.wordEmotionAssociationRepository = wordEmotionAssociationRepository;
+        this.predefinedLexicons = predefinedLexicons;
+        this.missingModels = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(missingModelTtl)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long started = System.currentTimeMillis();
+        for (Model model : modelRepository.findAll()) {
+            snapshots.put(model.getName(), load(model));
+        }
+        logger.info("Warmed lexicon snapshots for {} models in {} ms", snapshots.size(), System.currentTimeMillis() - started);
+    }
+
+    // Current snapshot for the model; only a model created after warm-up is loaded from the database here
+    public Mono<LexiconSnapshot> getSnapshot(String modelName) {
+        return Mono.defer(() -> {
+                    LexiconSnapshot current = snapshots.get(modelName);
+                    if (current != null) {
+                        return Mono.just(current);
+                    }
+                    if (missingModels.getIfPresent(modelName) != null) {
+                        return Mono.empty();
+                    }
+                    return loading.computeIfAbsent(modelName, this::loadByName).flatMap(Mono::justOrEmpty);
+                })
+                .switchIfEmpty(Mono.error(new RuntimeException("Model not found: " + modelName)))
+                .flatMap(snapshot -> snapshot.emotions().isEmpty()
+                        ? Mono.error(new RuntimeException("No emotion categories found for model: " + modelName))
+                        : Mono.just(snapshot));
+    }
+
+    // JPA reads off the event loop and outside the map's locks; a refresh that lands meanwhile wins over this load
+    private Mono<Optional<LexiconSnapshot>> loadByName(String modelName) {
+        return Mono.fromCallable(() -> {
+                    Optional<LexiconSnapshot> loaded = modelRepository.findByName(modelName).map(this::load);
+                    if (loaded.isEmpty()) {
+                        missingModels.put(modelName, Boolean.TRUE);
+                        return loaded;
+                    }
+                    LexiconSnapshot existing = snapshots.putIfAbsent(modelName, loaded.get());
+                    return Optional.ofNullable(existing).or(() -> loaded);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .doFinally(signal -> loading.remove(modelName))
+                .cache();
+    }
+
+    // Copy-on-write update for associations that were just persisted; does not read the database
+    public void addAssociations(String modelName, Map<String, int[]> additions) {
+        if (additions.isEmpty()) {
+            return;
+        }
+        snapshots.computeIfPresent(modelName, (name, current) -> current.withAssociations(additions));
+    }
+
+    // Reloads the model's snapshot from the database once the surrounding transaction (if any) has committed
+    public void refresh(Long modelId) {
+        afterCommit(() -> {
+            Optional<Model> model = modelRepository.findById(modelId);
+            if (model.isEmpty()) {
+                evictById(modelId);
+                return;
+            }
+            String name = model.get().getName();
+            missingModels.invalidate(name);
+            // A renamed model must not leave its old entry behind
+            snapshots.entrySet().removeIf(entry -> modelId.equals(entry.getValue().modelId()) && !entry.getKey().equals(name));
+            // compute() serializes reloads of the same model, so concurrent refreshes do not build it twice in parallel
+            snapshots.compute(name, (key, current) -> load(model.get()));
+        });
+    }
+
+    public void evict(Long modelId) {
+        afterCommit(() -> evictById(modelId));
+    }
+
+    private void evictById(Long modelId) {
+        snapshots.values().removeIf(snapshot -> modelId.equals(snapshot.modelId()));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private LexiconSnapshot load(Model model) {
+        LexiconSnapshot.Builder builder = LexiconSnapshot.builder(model.getId(), model.getName());
+        List<EmotionCategory> emotionCategories = model.getEmotionCategories();
+        for (EmotionCategory category : emotionCategories) {
+            builder.emotion(category.getEmotion(), category.getId());
+        }
+        if (!emotionCategories.isEmpty()) {
+            // Predefined models read their seeded words from the mapped binary lexicon instead of the entity graph
+            Optional<BinaryLexicon> compiled = model.isPredefined() ? predefinedLexicons.get(model.getName()) : Optional.empty();
+            List<WordEmotionAssociation> associations;
+            if (compiled.isPresent()) {
+                List<String> emotions = compiled.get().emotions();
+                compiled.get().forEach((word, ordinals) -> {
+                    for (int ordinal : ordinals) {
+                        builder.add(word, emotions.get(ordinal));
+                    }
+                });
+                associations = wordEmotionAssociationRepository.findByEmotionCategoryInAndPredefinedFalse(emotionCategories);
+            } else {
+                associations = wordEmotionAssociationRepository.findByEmotionCategoryIn(emotionCategories);
+            }
+            for (WordEmotionAssociation association : associations) {
+                if (association.isLearned()) {
+                    builder.addLearned(association.getWord(), association.getEmotionCategory().getEmotion());
+                } else {
+                    builder.add(association.getWord(), association.getEmotionCategory().getEmotion());
+                }
+            }
+        }
+        LexiconSnapshot snapshot = builder.build();
+        logger.info("Loaded lexicon snapshot for model '{}': {} emotions, {} words, version {} (curated {})",
+                model.getName(), snapshot.emotions().size(), snapshot.words().size(), Long.toHexString(snapshot.version()),
+                Long.toHexString(snapshot.curatedVersion()));
+        return snapshot;
+    }
+}
@@ -1,99 +1,229 @@
 package com.deeppurple.backend.service;
 
-import com.deeppurple.backend.entity.EmotionCategory;
-import com.deeppurple.backend.entity.Model;
-import com.deeppurple.backend.entity.WordEmotionAssociation;
-import com.deeppurple.backend.repository.ModelRepository;
+import com.deeppurple.backend.config.ProviderHttpClients;
+import com.deeppurple.backend.config.ProviderJson;
+import com.deeppurple.backend.dto.WordEmotion;
+import com.deeppurple.backend.lexicon.LexiconSnapshot;
+import com.deeppurple.backend.lexicon.LexiconTokenizer;
+import com.deeppurple.backend.lexicon.TokenPrefilter;
 import com.deeppurple.backend.repository.WordEmotionAssociationRepository;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.deeppurple.backend.repository.WordEmotionAssociationRepositoryCustom.NewAssociation;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class MissingEmotionService {
+    private static final ObjectReader WORD_EMOTIONS = ProviderJson.MAPPER.readerForListOf(WordEmotion.class);
+    private static final String NO_EMOTION = "none"; // Classifier answer for a word without an emotional association
     private final WordEmotionAssociationRepository wordEmotionAssociationRepository;
-    private final ModelRepository modelRepository;
+    private final LexiconSnapshotService lexiconSnapshotService;
+    private final NeutralWordService neutralWordService;
+    private final TokenPrefilter tokenPrefilter;
     private final WebClient webClient;
     private final Logger logger = LoggerFactory.getLogger(MissingEmotionService.class);
+    private final int batchSize;
+    private final int maxPendingWords;
+    private final Map<String, ClassificationQueue> queues = new ConcurrentHashMap<>(); // model name -> queued words
+    private final Disposable worker;
+
+    // Classifier reply; complete unless the answer was cut off by the token limit
+    private record Classification(List<WordEmotion> words, boolean complete) {
+    }
+
+    // Unknown words of one model waiting for classification; guarded by its own monitor
+    private static final class ClassificationQueue {
+        private final Set<String> pending = new LinkedHashSet<>();
+        private final Set<String> inFlight = new HashSet<>();
+        private boolean flushing;
+    }
 
     @Autowired
-    public MissingEmotionService(WordEmotionAssociationRepository wordEmotionAssociationRepository, ModelRepository modelRepository) {
+    public MissingEmotionService(WordEmotionAssociationRepository wordEmotionAssociationRepository,
+                                 LexiconSnapshotService lexiconSnapshotService, NeutralWordService neutralWordService,
+                                 TokenPrefilter tokenPrefilter, ProviderHttpClients providerHttpClients,
+                                 @Value("${analysis.missing-words.batch-size:200}") int batchSize,
+                                 @Value("${analysis.missing-words.max-pending:5000}") int maxPendingWords,
+                                 @Value("${analysis.missing-words.flush-interval:5s}") Duration flushInterval) {
         this.wordEmotionAssociationRepository = wordEmotionAssociationRepository;
-        this.modelRepository = modelRepository;
-        this.webClient = WebClient.builder()
-                .baseUrl("https://api.openai.com/v1")
+        this.lexiconSnapshotService = lexiconSnapshotService;
+        this.neutralWordService = neutralWordService;
+        this.tokenPrefilter = tokenPrefilter;
+        this.webClient = providerHttpClients.webClient(ProviderHttpClients.OPENAI)
                 .defaultHeader("Authorization", "Bearer " + System.getenv("OPENAI_API_KEY"))
                 .build();
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPendingWords = Math.max(this.batchSize, maxPendingWords);
+        // Size trigger in enqueueUnknownWords, time trigger here
+        this.worker = Flux.interval(flushInterval, flushInterval)
+                .subscribe(tick -> flushAll());
     }
 
-    public Mono<Void> processMissingEmotions(String content, String modelName) {
-        logger.info("Processing missing emotions for model '{}'", modelName);
-
-        return Mono.justOrEmpty(modelRepository.findByName(modelName))
-                .switchIfEmpty(Mono.error(new RuntimeException("Model not found: " + modelName)))
-                .flatMap(model -> {
-                    List<EmotionCategory> emotionCategories = model.getEmotionCategories();
-                    if (emotionCategories.isEmpty()) {
-                        return Mono.error(new RuntimeException("No emotion categories found for model: " + modelName));
+    // Queues the content's unknown words for classification and returns at once; the request goes on with the
+    // current lexicon and the learned associations reach later requests through a new lexicon snapshot
+    public Mono<Void> enqueueUnknownWords(String content, String modelName) {
+        return lexiconSnapshotService.getSnapshot(modelName)
+                .doOnNext(lexicon -> {
+                    Set<String> wordsInContent = extractUnknownWords(content, lexicon); // Known words are skipped in place
+                    if (wordsInContent.isEmpty()) {
+                        return;
                     }
+                    ClassificationQueue queue = queues.computeIfAbsent(modelName, name -> new ClassificationQueue());
+                    boolean full;
+                    synchronized (queue) {
+                        for (String word : wordsInContent) {
+                            if (queue.pending.size() >= maxPendingWords) {
+                                logger.warn("Unknown-word queue of model '{}' is full, dropping new words", modelName);
+                                break;
+                            }
+                            if (!queue.inFlight.contains(word)) {
+                                queue.pending.add(word);
+                            }
+                        }
+                        full = queue.pending.size() >= batchSize;
+                    }
+                    if (full) {
+                        flush(modelName).subscribe();
+                    }
+                })
+                .then();
+    }
 
-                    List<WordEmotionAssociation> existingAssociations = wordEmotionAssociationRepository.findByEmotionCategoryIn(emotionCategories);
-                    Set<String> knownWords = existingAssociations.stream()
-                            .map(WordEmotionAssociation::getWord)
-                            .collect(Collectors.toSet());
+    // Classifies up to one batch of the model's queued words; at most one flush per model runs at a time
+    public Mono<Void> flush(String modelName) {
+        ClassificationQueue queue = queues.get(modelName);
+        if (queue == null) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            Set<String> batch = new LinkedHashSet<>();
+            synchronized (queue) {
+                if (queue.flushing || queue.pending.isEmpty()) {
+                    return Mono.empty();
+                }
+                queue.flushing = true;
+                Iterator<String> pending = queue.pending.iterator();
+                while (pending.hasNext() && batch.size() < batchSize) {
+                    batch.add(pending.next());
+                    pending.remove();
+                }
+                queue.inFlight.addAll(batch);
+            }
+            return lexiconSnapshotService.getSnapshot(modelName)
+                    .publishOn(Schedulers.boundedElastic())
+                    .flatMap(lexicon -> {
+                        neutralWordService.ensureLoaded(modelName);
+                        // Learned or found neutral since queued
+                        Set<String> words = new LinkedHashSet<>(batch);
+                        words.removeIf(word -> lexicon.containsWord(word, 0, word.length()) || neutralWordService.isNeutral(modelName, word));
+                        if (words.isEmpty()) {
+                            return Mono.<Void>empty();
+                        }
+                        logger.info("Classifying {} unknown words for model '{}'", words.size(), modelName);
+                        String prompt = createEmotionClassificationPrompt(words, lexicon.emotions());
+                        return callOpenAIForEmotionClassification(prompt)
+                                .publishOn(Schedulers.boundedElastic())
+                                .flatMap(classification -> saveNewAssociations(classification.words(), lexicon)
+                                        .then(Mono.fromRunnable(() ->
+                                                neutralWordService.recordNeutral(modelName, neutralWords(words, classification, modelName)))));
+                    })
+                    .onErrorResume(error -> {
+                        // The words are not learned and get queued again the next time they are seen
+                        logger.error("Unknown-word classification failed for model '{}': {}", modelName, error.getMessage());
+                        return Mono.empty();
+                    })
+                    .doFinally(signal -> {
+                        boolean more;
+                        synchronized (queue) {
+                            queue.inFlight.removeAll(batch);
+                            queue.flushing = false;
+                            more = queue.pending.size() >= batchSize;
+                        }
+                        if (more) {
+                            flush(modelName).subscribe();
+                        }
+                    });
+        });
+    }
 
-                    Set<String> wordsInContent = extractWordsFromContent(content);
-                    wordsInContent.removeAll(knownWords); // Filter out known words
+    // Words of the batch the classifier explicitly answered "none" for. Only a complete reply that answered every
+    // word counts: a word missing from a truncated or partial reply has not been classified, and is left to be
+    // queued again rather than stored as neutral.
+    private Set<String> neutralWords(Set<String> words, Classification classification, String modelName) {
+        Set<String> answered = new HashSet<>();
+        Set<String> neutral = new LinkedHashSet<>();
+        for (WordEmotion entry : classification.words()) {
+            if (entry.word() == null || entry.emotion() == null) {
+                continue;
+            }
+            String word = entry.word().strip();
+            word = LexiconTokenizer.lowerCase(word, 0, word.length());
+            answered.add(word);
+            if (NO_EMOTION.equalsIgnoreCase(entry.emotion().strip())) {
+                neutral.add(word);
+            }
+        }
+        if (!classification.complete() || !answered.containsAll(words)) {
+            logger.warn("Classification of {} words for model '{}' was incomplete, not recording neutral words",
+                    words.size(), modelName);
+            return Set.of();
+        }
+        neutral.retainAll(words);
+        return neutral;
+    }
 
-                    if (wordsInContent.isEmpty()) {
-                        logger.info("No new words or emojis found.");
-                        return Mono.empty();
-                    }
-                    logger.info("processing emotions '{}'.", wordsInContent);
+    // Time trigger: flushes every model's queue, one model after the other
+    private void flushAll() {
+        Flux.fromIterable(queues.keySet())
+                .concatMap(this::flush)
+                .subscribe();
+    }
 
-                    String prompt = createEmotionClassificationPrompt(wordsInContent, emotionCategories);
-                    logger.info("calling openAI for emotion classification.");
-                    return callOpenAIForEmotionClassification(prompt)
-                            .flatMap(newAssociations -> saveNewAssociations(newAssociations, model));
-                });
+    @PreDestroy
+    public void stop() {
+        worker.dispose();
     }
 
-    private Set<String> extractWordsFromContent(String content) {
+    private Set<String> extractUnknownWords(String content, LexiconSnapshot lexicon) {
         Set<String> words = new HashSet<>();
-        Matcher matcher = Pattern.compile("\\b\\w+\\b|\\p{So}|\\p{Cs}").matcher(content);
-        while (matcher.find()) {
-            words.add(matcher.group());
-        }
+        LexiconTokenizer.tokenize(content, (text, start, end, emoji) -> {
+            // Numerals, very short words and stop words never reach the classifier
+            if (tokenPrefilter.isCandidate(text, start, end, emoji) && !lexicon.containsWord(text, start, end)) {
+                String word = LexiconTokenizer.lowerCase(text, start, end);
+                if (!neutralWordService.isNeutral(lexicon.modelName(), word)) { // Found emotionless before
+                    words.add(word);
+                }
+            }
+        });
         return words;
     }
 
-    private String createEmotionClassificationPrompt(Set<String> words, List<EmotionCategory> emotionCategories) {
-        String emotionList = emotionCategories.stream()
-                .map(EmotionCategory::getEmotion)
-                .collect(Collectors.joining(", "));
+    private String createEmotionClassificationPrompt(Set<String> words, List<String> emotions) {
+        String emotionList = String.join(", ", emotions);
 
         String wordsList = String.join(", ", words);
 
         return "Analyze and identify the most appropriate emotion for each of the following abbreviations, words or emojis based on the given emotions: " + emotionList +
                 ".\nWords/Emojis: " + wordsList +
-                ".\nRemove all common stop words and numbers." +
-                ".\nThen only return words, emojis, or abbreviations that have an emotional association. "+
-                "\nFormat your response as a JSON array: [{\"word\": \"word1\", \"emotion\": \"emotion1\"}, {\"word\": \"word2\", \"emotion\": \"emotion2\"}].";
+                ".\nReturn every word, emoji or abbreviation exactly once; use the emotion \"" + NO_EMOTION + "\" for those without an emotional association. " +
+                "\nFormat your response as a JSON array: [{\"word\": \"word1\", \"emotion\": \"emotion1\"}, {\"word\": \"word2\", \"emotion\": \"" + NO_EMOTION + "\"}].";
     }
 
-    private Mono<List<Map<String, String>>> callOpenAIForEmotionClassification(String prompt) {
+    private Mono<Classification> callOpenAIForEmotionClassification(String prompt) {
         Map<String, Object> requestBody = Map.of(
                 "model", "gpt-4o-mini",
                 "messages", List.of(Map.of("role", "user", "content", prompt)),
@@ -105,78 +235,60 @@ public class MissingEmotionService {
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(requestBody)
                 .retrieve()
-                .bodyToMono(JsonNode.class)
+                .bodyToMono(ProviderJson.ChatCompletion.class)
                 .map(response -> {
-                    JsonNode choices = response.path("choices");
-                    if (choices.isArray() && choices.size() > 0) {
-                        String jsonResponse = choices.get(0).path("message").path("content").asText();
-                        logger.info("jsonResponse: {}", jsonResponse);
-
-                        try {
-                            // Strip out any extra characters (like backticks) around the JSON response
-                            jsonResponse = jsonResponse.replace("```json", "").replace("```", "").trim();
-
-                            ObjectMapper objectMapper = new ObjectMapper();
-
-                            // Step 1: Parse the jsonResponse string into a JsonNode
-                            JsonNode parsedJson = objectMapper.readTree(jsonResponse);
-
-                            // Step 2: Check if parsedJson is actually an array before proceeding
-                            if (parsedJson.isArray()) {
-                                // Step 3: Convert the parsed JSON array into a List of Maps
-                                return objectMapper.convertValue(parsedJson, new TypeReference<List<Map<String, String>>>() {});
-                            } else {
-                                throw new RuntimeException("Parsed JSON is not an array.");
-                            }
-                        } catch (Exception e) {
-                            logger.error("Error parsing OpenAI response", e);
-                            throw new RuntimeException("Error parsing OpenAI response", e);
-                        }
+                    String jsonResponse = response.content();
+                    logger.info("jsonResponse: {}", jsonResponse);
+                    if (jsonResponse.isBlank()) {
+                        return new Classification(List.of(), false); // No valid choices
                     }
-                    return List.of(); // Return an empty list if there's no valid choices
+                    if (response.truncated()) {
+                        // The JSON is cut off; nothing in it can be trusted to be complete
+                        return new Classification(List.of(), false);
+                    }
+                    List<WordEmotion> classified = ProviderJson.read(jsonResponse, WORD_EMOTIONS);
+                    return new Classification(classified == null ? List.of() : classified, classified != null);
                 });
-
-
-
     }
 
-    private Mono<Void> saveNewAssociations(List<Map<String, String>> newAssociations, Model model) {
-        List<WordEmotionAssociation> associationsToSave = newAssociations.stream()
-                .map(entry -> {
-                    String word = entry.get("word");
-                    String emotion = entry.get("emotion");
-                    EmotionCategory category = model.getEmotionCategories().stream()
-                            .filter(ec -> ec.getEmotion().equalsIgnoreCase(emotion))
-                            .findFirst()
-                            .orElse(null);
-
-                    if (category != null) {
-
-                        // Check if the association already exists
-                        Optional<WordEmotionAssociation> existingEntry = wordEmotionAssociationRepository
-                                .findByWordAndEmotionCategory(word, category);
-
-                        if (existingEntry.isEmpty()) {
-                            // Create a new association only if it doesn't exist
-                            WordEmotionAssociation association = new WordEmotionAssociation();
-                            association.setWord(word);
-                            association.setEmotionCategory(category);
-                            return association;
-                        }
-                    }
-                    return null;
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+    // One batched insert per classification; rows that already exist, or that a concurrent request inserts first,
+    // are skipped by the unique constraint instead of being looked up word by word
+    private Mono<Void> saveNewAssociations(List<WordEmotion> newAssociations, LexiconSnapshot lexicon) {
+        Map<NewAssociation, Integer> rows = new LinkedHashMap<>(); // row -> emotion ordinal
+        for (WordEmotion entry : newAssociations) {
+            int ordinal = lexicon.ordinalOf(entry.emotion());
+            if (entry.word() == null || entry.word().isBlank() || ordinal < 0) {
+                continue;
+            }
+            String word = entry.word().strip();
+            word = LexiconTokenizer.lowerCase(word, 0, word.length());
+            rows.putIfAbsent(new NewAssociation(word, lexicon.categoryId(ordinal)), ordinal);
+        }
 
-        if (associationsToSave.isEmpty()) {
+        if (rows.isEmpty()) {
             return Mono.empty();
         }
 
-        return Mono.fromRunnable(() -> wordEmotionAssociationRepository.saveAll(associationsToSave))
+        return Mono.fromRunnable(() -> {
+                    List<NewAssociation> associations = new ArrayList<>(rows.keySet());
+                    boolean[] inserted = wordEmotionAssociationRepository.insertIgnoringExisting(associations, false, true);
+                    Map<String, int[]> additions = new HashMap<>();
+                    int learned = 0;
+                    for (int i = 0; i < inserted.length; i++) {
+                        if (inserted[i]) {
+                            learned++;
+                            int ordinal = rows.get(associations.get(i));
+                            additions.merge(associations.get(i).word(), new int[]{ordinal}, (current, added) -> {
+                                int[] merged = Arrays.copyOf(current, current.length + 1);
+                                merged[current.length] = ordinal;
+                                return merged;
+                            });
+                        }
+                    }
+                    lexiconSnapshotService.addAssociations(lexicon.modelName(), additions); // Publish to later requests
+                    logger.info("Stored {} of {} word associations for model '{}'", learned, associations.size(), lexicon.modelName());
+                })
                 .then();
     }
 
 }
-
-
@@ -1,94 +1,77 @@
 package com.deeppurple.backend.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.deeppurple.backend.config.ProviderHttpClients;
+import com.deeppurple.backend.dto.EmotionAnalysis;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.netty.http.client.HttpClient;
 
-import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
-public class MistralService {
+@Order(3)
+public class MistralService implements EmotionAnalysisProvider {
     private static final Logger logger = LoggerFactory.getLogger(MistralService.class);
+    private static final String MODEL_VERSION = "mistral-small-latest";
     private final WebClient webClient;
-    private final ObjectMapper objectMapper = new ObjectMapper(); // Jackson for JSON parsing
 
 
-    public MistralService() {
-        this.webClient = WebClient.builder()
-                .baseUrl("https://api.mistral.ai")
+    public MistralService(ProviderHttpClients providerHttpClients) {
+        this.webClient = providerHttpClients.webClient(ProviderHttpClients.MISTRAL)
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
                 .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + System.getenv("MISTRAL_API_KEY"))
-                .clientConnector(new ReactorClientHttpConnector(
-                        HttpClient.create().responseTimeout(Duration.ofSeconds(10)) // Set timeout as needed
-                ))
                 .build();
     }
 
-    public Mono<Map<String, Object>> analyzeWithMistral(String prompt) {
+    @Override
+    public String name() {
+        return ProviderHttpClients.MISTRAL;
+    }
+
+    @Override
+    public String modelVersion() {
+        return MODEL_VERSION;
+    }
+
+    @Override
+    public <T> Mono<T> analyze(String prompt, Class<T> type, Consumer<EmotionAnalysis> onPartial) {
+        return analyzeWithMistral(prompt, type, onPartial);
+    }
+
+    // Streams the completion and binds it to the given type; primaryEmotion and confidenceRating are passed to
+    // onPartial as soon as they have streamed
+    public <T> Mono<T> analyzeWithMistral(String prompt, Class<T> type, Consumer<EmotionAnalysis> onPartial) {
         logger.info("Calling Mistral API with prompt.");
 
         Map<String, Object> requestBody = Map.of(
-                "model", "mistral-small-latest",
+                "model", MODEL_VERSION,
                 "messages", List.of(Map.of(
                         "role", "user",
                         "content", prompt
-                ))
+                )),
+                "stream", true
         );
 
-        return webClient.post()
+        Flux<String> deltas = webClient.post()
                 .uri("/v1/chat/completions")
+                .accept(MediaType.TEXT_EVENT_STREAM)
                 .bodyValue(requestBody)
                 .retrieve()
-                .bodyToMono(Map.class)
-                .flatMap(this::processApiResponse)
-                .doOnError(error -> {
-                    if (error instanceof Throwable) {
-                        logger.error("Error calling Mistral API: {}", ((Throwable) error).getMessage());
-                    } else {
-                        logger.error("Unexpected error calling Mistral API: {}", error.toString());
-                    }
-                });
-    }
-
-    private Mono<Map<String, Object>> processApiResponse(Map<String, Object> response) {
-        logger.info("Mistral API Response: {}", response);
-
-        try {
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
-            if (choices == null || choices.isEmpty()) {
-                return Mono.error(new RuntimeException("No choices found in Mistral API response"));
-            }
-
-            Map<String, Object> firstChoice = choices.get(0);
-            Map<String, Object> message = (Map<String, Object>) firstChoice.get("message");
-            String content = (String) message.get("content");
-
-            // Remove Markdown formatting (` ```json ... ``` `)
-            if (content.startsWith("```json")) {
-                content = content.replaceAll("```json|```", "").trim();
-            }
-            // Remove backticks if present
-            if (content.startsWith("```") && content.endsWith("```")) {
-                content = content.substring(3, content.length() - 3);  // Strip off the backticks
-            }
-
-            // Parse the cleaned JSON string into a Map
-            Map<String, Object> parsedContent = objectMapper.readValue(content, Map.class);
-
-            // Return the parsed JSON as the response
-            return Mono.just(parsedContent);
-        } catch (Exception e) {
-            return Mono.error(new RuntimeException("Error parsing Mistral API response: " + e.getMessage(), e));
-        }
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !"[DONE]".equals(data))
+                .map(StreamingAnalysisParser::chatCompletionDelta);
+        return StreamingAnalysisParser.parse(deltas, type, onPartial)
+                .doOnError(error -> logger.error("Error calling Mistral API: {}", error.getMessage()));
     }
 }
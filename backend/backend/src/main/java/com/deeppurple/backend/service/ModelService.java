@@ -13,6 +13,9 @@ public class ModelService {
     @Autowired
     private ModelRepository modelRepository;
 
+    @Autowired
+    private LexiconSnapshotService lexiconSnapshotService;
+
     public Model createModel(String name) {
         if (modelRepository.findByName(name).isPresent()) {
             throw new RuntimeException("Model with this name already exists");
@@ -22,6 +25,7 @@ public class ModelService {
         model.setName(name);
         model.setEmotionCategories(new ArrayList<>()); // Initialize the list explicitly
         Model savedModel = modelRepository.save(model);
+        lexiconSnapshotService.refresh(savedModel.getId());
 
         System.out.println("Created Model: " + savedModel);
         return savedModel;
@@ -38,6 +42,7 @@ public class ModelService {
 
     public void deleteModel(Long id) {
         modelRepository.deleteById(id);
+        lexiconSnapshotService.evict(id);
     }
 }
 
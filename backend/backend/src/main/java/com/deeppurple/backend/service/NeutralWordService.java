@@ -0,0 +1,140 @@
+package com.deeppurple.backend.service;
+
+import com.deeppurple.backend.lexicon.BloomFilter;
+import com.deeppurple.backend.repository.NeutralWordRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Words the classifier found no emotion in, per model, so they are not sent to it again.
+ * <p>
+ * The words are stored in the {@code neutral_words} table and each model's set is held in memory as a
+ * {@link BloomFilter}, warmed at startup. A false positive only means a word is not classified; the filter is rebuilt
+ * from the table with twice the capacity once it holds as many words as it was sized for. Entries expire after
+ * {@code analysis.neutral-words.ttl} and can be removed with {@link #removeNeutral}; as a Bloom filter cannot forget
+ * a word, both rebuild the affected filters from the table.
+ */
+@Service
+public class NeutralWordService {
+    private static final Logger logger = LoggerFactory.getLogger(NeutralWordService.class);
+
+    private final NeutralWordRepository repository;
+    private final int initialCapacity;
+    private final double falsePositiveRate;
+    private final Duration ttl;
+    private final Map<String, BloomFilter> filters = new ConcurrentHashMap<>();
+    private final Disposable purger;
+
+    public NeutralWordService(NeutralWordRepository repository,
+                              @Value("${analysis.neutral-words.initial-capacity:100000}") int initialCapacity,
+                              @Value("${analysis.neutral-words.false-positive-rate:0.01}") double falsePositiveRate,
+                              @Value("${analysis.neutral-words.ttl:30d}") Duration ttl,
+                              @Value("${analysis.neutral-words.purge-interval:1h}") Duration purgeInterval) {
+        this.repository = repository;
+        this.initialCapacity = Math.max(1, initialCapacity);
+        this.falsePositiveRate = falsePositiveRate;
+        this.ttl = ttl;
+        this.purger = Flux.interval(purgeInterval, purgeInterval)
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(tick -> purgeExpired());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long started = System.currentTimeMillis();
+        for (String modelName : repository.findModelNames()) {
+            filters.put(modelName, load(modelName));
+        }
+        logger.info("Loaded neutral-word filters for {} models in {} ms", filters.size(), System.currentTimeMillis() - started);
+    }
+
+    @PreDestroy
+    public void stop() {
+        purger.dispose();
+    }
+
+    // Non-blocking check for the request path; false until the model's filter is loaded
+    public boolean isNeutral(String modelName, CharSequence word) {
+        BloomFilter filter = filters.get(modelName);
+        return filter != null && filter.mightContain(word);
+    }
+
+    // Loads the model's filter if needed; blocking, call off the event loop
+    public void ensureLoaded(String modelName) {
+        filters.computeIfAbsent(modelName, this::load);
+    }
+
+    // Persists the words and, once they are stored, adds them to the model's filter; blocking. Called by one
+    // classification flush per model at a time, which keeps the filter's adds single-threaded.
+    public void recordNeutral(String modelName, Collection<String> words) {
+        List<String> added = words.stream()
+                .filter(word -> !isNeutral(modelName, word))
+                .distinct()
+                .toList();
+        if (added.isEmpty()) {
+            return;
+        }
+        repository.insertIgnoringExisting(modelName, added); // Words already stored are skipped, not an error
+
+        BloomFilter filter = filters.computeIfAbsent(modelName, this::load);
+        added.forEach(filter::add);
+        if (filter.size() > filter.capacity()) {
+            filters.put(modelName, load(modelName));
+        }
+        logger.info("Recorded {} neutral words for model '{}'", added.size(), modelName);
+    }
+
+    // Forgets the words for the model, so they are classified again; blocking
+    public int removeNeutral(String modelName, Collection<String> words) {
+        if (words.isEmpty()) {
+            return 0;
+        }
+        int deleted = repository.deleteWords(modelName, words);
+        if (filters.containsKey(modelName)) {
+            filters.put(modelName, load(modelName));
+        }
+        logger.info("Removed {} neutral words of model '{}'", deleted, modelName);
+        return deleted;
+    }
+
+    // Deletes entries older than the TTL and rebuilds the loaded filters. A word recorded while a filter is being
+    // rebuilt may be missing from the new one; it is then classified once more.
+    private void purgeExpired() {
+        try {
+            int deleted = repository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+            if (deleted == 0) {
+                return;
+            }
+            filters.replaceAll((modelName, filter) -> load(modelName));
+            logger.info("Expired {} neutral words older than {}", deleted, ttl);
+        } catch (RuntimeException e) {
+            logger.warn("Neutral-word expiry failed: {}", e.getMessage());
+        }
+    }
+
+    private BloomFilter load(String modelName) {
+        List<String> words = repository.findWordsByModelName(modelName);
+        int capacity = initialCapacity;
+        while (capacity < words.size() * 2L && capacity < Integer.MAX_VALUE / 2) {
+            capacity *= 2;
+        }
+        BloomFilter filter = BloomFilter.create(capacity, falsePositiveRate);
+        words.forEach(filter::add);
+        return filter;
+    }
+}
@@ -0,0 +1,71 @@
+package com.deeppurple.backend.service;
+
+import com.deeppurple.backend.config.ProviderHttpClients;
+import com.deeppurple.backend.dto.EmotionAnalysis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Service
+@Order(1)
+public class OpenAIChatService implements EmotionAnalysisProvider {
+    private static final Logger logger = LoggerFactory.getLogger(OpenAIChatService.class);
+    private static final String MODEL_VERSION = "gpt-4o-mini";
+
+    private final WebClient webClient;
+    private final int maxOutputTokens;
+
+    public OpenAIChatService(ProviderHttpClients providerHttpClients,
+                             @Value("${analysis.providers.openai.max-tokens:4096}") int maxOutputTokens) {
+        this.maxOutputTokens = maxOutputTokens;
+        this.webClient = providerHttpClients.webClient(ProviderHttpClients.OPENAI)
+                .defaultHeader("Authorization", "Bearer " + System.getenv("OPENAI_API_KEY"))
+                .build();
+    }
+
+    @Override
+    public String name() {
+        return ProviderHttpClients.OPENAI;
+    }
+
+    @Override
+    public String modelVersion() {
+        return MODEL_VERSION;
+    }
+
+    // Streamed chat completion bound to the given type; primaryEmotion and confidenceRating are passed to onPartial
+    // as soon as they have streamed
+    @Override
+    public <T> Mono<T> analyze(String prompt, Class<T> type, Consumer<EmotionAnalysis> onPartial) {
+        Map<String, Object> requestBody = Map.of(
+                "model", MODEL_VERSION,
+                "messages", List.of(Map.of("role", "user", "content", prompt)),
+                "max_tokens", maxOutputTokens,
+                "stream", true
+        );
+
+        Flux<String> deltas = webClient.post()
+                .uri("/chat/completions")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !"[DONE]".equals(data))
+                .map(StreamingAnalysisParser::chatCompletionDelta);
+        return StreamingAnalysisParser.parse(deltas, type, onPartial)
+                .doOnError(error -> logger.error("Error calling OpenAI API: {}", error.getMessage()));
+    }
+}
@@ -1,244 +1,472 @@
 package com.deeppurple.backend.service;
 
-import com.deeppurple.backend.entity.EmotionCategory;
-import com.deeppurple.backend.entity.WordEmotionAssociation;
-import com.deeppurple.backend.repository.ModelRepository;
-import com.deeppurple.backend.repository.WordEmotionAssociationRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.deeppurple.backend.dto.AnalysisEvent;
+import com.deeppurple.backend.dto.BatchAnalysis;
+import com.deeppurple.backend.dto.EmotionAnalysis;
+import com.deeppurple.backend.lexicon.EmotionScorer;
+import com.deeppurple.backend.lexicon.EmotionScores;
+import com.deeppurple.backend.lexicon.LexiconSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class OpenAIService {
     private static final Logger logger = LoggerFactory.getLogger(OpenAIService.class);
+    public static final String LEXICON_MODEL_VERSION = "lexicon-v1";
+    private static final int MAX_LEXICON_SECONDARY_EMOTIONS = 3;
+
+    private final LexiconSnapshotService lexiconSnapshotService;
+    private final AnalysisProviderRegistry providerRegistry;
+    private final int parallelScoringThreshold;
+    private final int parallelScoringChunkSize;
+    private final int providerQuorum;
+    private final Duration providerDeadline;
+    private final double providerConfidenceThreshold;
+    private final int providerFanOut;
+    private final ProviderResilience providerResilience;
+    private final PromptCompiler promptCompiler;
+    private final int batchTokenBudget;
+    private final int batchMaxItems;
+    private final int batchConcurrency;
+
+    public OpenAIService(LexiconSnapshotService lexiconSnapshotService, AnalysisProviderRegistry providerRegistry,
+                         ProviderResilience providerResilience, PromptCompiler promptCompiler,
+                         @Value("${analysis.lexicon.parallel-threshold:262144}") int parallelScoringThreshold,
+                         @Value("${analysis.lexicon.parallel-chunk-size:65536}") int parallelScoringChunkSize,
+                         @Value("${analysis.providers.quorum:2}") int providerQuorum,
+                         @Value("${analysis.providers.deadline:10s}") Duration providerDeadline,
+                         @Value("${analysis.providers.confidence-threshold:90}") double providerConfidenceThreshold,
+                         @Value("${analysis.providers.fan-out:3}") int providerFanOut,
+                         @Value("${analysis.batch.token-budget:6000}") int batchTokenBudget,
+                         @Value("${analysis.batch.max-items:20}") int batchMaxItems,
+                         @Value("${analysis.batch.concurrency:4}") int batchConcurrency) {
+        this.lexiconSnapshotService = lexiconSnapshotService;
+        this.providerRegistry = providerRegistry;
+        this.parallelScoringThreshold = parallelScoringThreshold;
+        this.parallelScoringChunkSize = parallelScoringChunkSize;
+        this.providerQuorum = Math.max(1, Math.min(providerQuorum, providerRegistry.providers().size()));
+        this.providerDeadline = providerDeadline;
+        this.providerConfidenceThreshold = providerConfidenceThreshold;
+        this.providerFanOut = Math.max(1, providerFanOut);
+        this.providerResilience = providerResilience;
+        this.promptCompiler = promptCompiler;
+        this.batchTokenBudget = batchTokenBudget;
+        this.batchMaxItems = Math.max(1, batchMaxItems);
+        this.batchConcurrency = Math.max(1, batchConcurrency);
+    }
 
-    private final WebClient webClient;
-    private final ModelRepository modelRepository;
-    private final WordEmotionAssociationRepository wordEmotionAssociationRepository;
-    private final GeminiService geminiService;
-    private final MistralService mistralService;
+    public Mono<EmotionAnalysis> analyzeEmotionWithModel(String content, String modelName) {
+        logger.info("Analyzing content '{}' with model '{}'", content, modelName);
 
-    public OpenAIService(ModelRepository modelRepository, WordEmotionAssociationRepository wordEmotionAssociationRepository, GeminiService geminiService, MistralService mistralService) {
-        this.modelRepository = modelRepository;
-        this.wordEmotionAssociationRepository = wordEmotionAssociationRepository;
-        this.geminiService = geminiService;
-        this.mistralService = mistralService;
-        this.webClient = WebClient.builder()
-                .baseUrl("https://api.openai.com/v1")
-                .defaultHeader("Authorization", "Bearer " + System.getenv("OPENAI_API_KEY"))
-                .build();
+        return lexiconSnapshotService.getSnapshot(modelName)
+                .flatMap(lexicon -> analyzeAlone(content, lexicon));
     }
 
-    public Mono<Map<String, Object>> analyzeEmotionWithModel(String content, String modelName) {
-        logger.info("Analyzing content '{}' with model '{}'", content, modelName);
+    // Lexicon-only analysis: no remote calls, the result is derived from the model's word-emotion associations
+    public Mono<EmotionAnalysis> analyzeEmotionWithLexicon(String content, String modelName) {
+        logger.info("Analyzing content with lexicon of model '{}'", modelName);
 
-        return Mono.justOrEmpty(modelRepository.findByName(modelName))
-                .switchIfEmpty(Mono.error(new RuntimeException("Model not found: " + modelName)))
-                .flatMap(model -> {
-                    List<EmotionCategory> emotionCategories = model.getEmotionCategories();
-                    if (emotionCategories.isEmpty()) {
-                        return Mono.error(new RuntimeException("No emotion categories found for model: " + modelName));
-                    }
+        return lexiconSnapshotService.getSnapshot(modelName)
+                .flatMap(lexicon -> lexiconResult(content, lexicon));
+    }
 
-                    // Fetch word-emotion associations for the model's emotion categories
-                    List<WordEmotionAssociation> associations = wordEmotionAssociationRepository.findByEmotionCategoryIn(emotionCategories);
-                    String prompt = createPrompt(content, emotionCategories, associations);
-                    // Call both OpenAI and Gemini APIs in parallel
-                    return Mono.zip(
-                            callOpenAI(prompt),
-                            geminiService.analyzeEmotionWithGemini(prompt),
-                            mistralService.analyzeWithMistral(prompt)
-                    ).map(results -> mergeResponses(results.getT1(), results.getT2(), results.getT3()));
- // Merge results
-                });
+    // Streaming variant of analyzeEmotionWithModel: each provider's result is emitted as it arrives,
+    // followed by the merged result once the race completes
+    public Flux<AnalysisEvent> streamEmotionWithModel(String content, String modelName) {
+        logger.info("Streaming analysis of content with model '{}'", modelName);
+
+        return lexiconSnapshotService.getSnapshot(modelName)
+                .flatMap(lexicon -> prompts(content, lexicon))
+                .flatMapMany(prompts -> raceProviders(prompts, EmotionAnalysis.class)
+                        .publish(shared -> Flux.merge(
+                                shared.map(result -> AnalysisEvent.provider(toProviderEvent(result.getKey().modelVersion(), result.getValue()))),
+                                mergeRace(shared).map(AnalysisEvent::analysis))));
     }
 
-    private Map<String, Object> mergeResponses(Map<String, Object> openAIResponse, Map<String, Object> geminiResponse, Map<String, Object> mistralResponse) {
-        logger.info("Analyzing confidence ratings for OpenAI, Gemini, and Mistral");
+    // Calls the healthiest enabled providers (up to the fan-out, skipping open circuits) at once, each within its
+    // bulkhead, and emits their results in order of arrival. The flux completes (cancelling the calls still in
+    // flight) once a quorum has answered, a result reaches the confidence threshold, or the deadline passes. A
+    // failing provider is logged and dropped instead of failing the analysis. Responses are streamed, so the race
+    // is usually decided on the providers' early confidence ratings: the others are cancelled once the leader's
+    // result has arrived, and if the leader fails instead the race is decided again among the rest.
+    private <T> Flux<Map.Entry<EmotionAnalysisProvider, T>> raceProviders(Function<String, String> prompts, Class<T> type) {
+        return Flux.defer(() -> {
+            Map<String, EmotionAnalysisProvider> byName = new LinkedHashMap<>();
+            providerRegistry.providers().forEach(provider -> byName.put(provider.name(), provider));
+
+            List<EmotionAnalysisProvider> routed = providerResilience.route(byName.keySet(), providerFanOut).stream()
+                    .map(byName::get)
+                    .toList();
+            if (routed.isEmpty()) {
+                return Flux.error(new RuntimeException("All emotion analysis providers are unavailable"));
+            }
+            EarlyDecision decision = new EarlyDecision(routed, Math.min(providerQuorum, routed.size()), providerConfidenceThreshold);
+            AtomicInteger answered = new AtomicInteger();
+            return Flux.merge(routed.stream()
+                            .map(provider -> callProvider(provider,
+                                    () -> provider.analyze(prompts.apply(provider.name()), type, partial -> decision.onPartial(provider, partial)))
+                                    .doOnSuccess(result -> {
+                                        if (result == null) {
+                                            decision.onFailure(provider);
+                                        } else {
+                                            decision.onResult(provider);
+                                        }
+                                    })
+                                    .takeUntilOther(decision.cancelled(provider)))
+                            .toList())
+                    .takeUntil(result -> answered.incrementAndGet() >= providerQuorum
+                            || (result.getValue() instanceof EmotionAnalysis analysis && analysis.confidenceRating() >= providerConfidenceThreshold))
+                    .take(providerDeadline);
+        });
+    }
 
-        double openAIConfidence = toDouble(openAIResponse.get("confidenceRating"));
-        double geminiConfidence = toDouble(geminiResponse.get("confidenceRating"));
-        double mistralConfidence = toDouble(mistralResponse.get("confidenceRating"));
-        logger.info("Confidence Ratings - OpenAI: {}, Gemini: {}, Mistral: {}", openAIConfidence, geminiConfidence, mistralConfidence);
+    private Mono<Function<String, String>> prompts(String content, LexiconSnapshot lexicon) {
+        return analyzeTextWithLexicon(content, lexicon.scorer()).map(scores -> prompts(content, lexicon, scores));
+    }
 
-        Map<String, Object> selectedResponse;
-        String selectedModel;
+    // Prompt for each provider within its token budget; providers with the same budget share one compiled prompt
+    private Function<String, String> prompts(String content, LexiconSnapshot lexicon, EmotionScores scores) {
+        Map<Integer, String> byBudget = new ConcurrentHashMap<>();
+        return provider -> byBudget.computeIfAbsent(promptCompiler.tokenBudget(provider),
+                budget -> promptCompiler.compile(content, lexicon, scores, budget));
+    }
 
-        if (openAIConfidence >= geminiConfidence && openAIConfidence >= mistralConfidence) {
-            selectedResponse = openAIResponse;
-            selectedModel = "gpt-4o-mini";
-        } else if (geminiConfidence >= openAIConfidence && geminiConfidence >= mistralConfidence) {
-            selectedResponse = geminiResponse;
-            selectedModel = "gemini-1.5-flash";
-        } else {
-            selectedResponse = mistralResponse;
-            selectedModel = "mistral-small-latest";
+    // Decides the race on the streamed confidence ratings: once a quorum of providers has reported one, or one reaches
+    // the threshold, the provider with the highest weighted confidence so far leads. Every other one is cancelled when
+    // the leader's result has arrived; a leader that fails first is dropped and the race is decided again without it.
+    private final class EarlyDecision {
+        private final List<EmotionAnalysisProvider> providers;
+        private final int quorum;
+        private final double confidenceThreshold;
+        private final Map<EmotionAnalysisProvider, Double> confidences = new LinkedHashMap<>();
+        private final Map<EmotionAnalysisProvider, Sinks.One<Boolean>> cancellations = new HashMap<>();
+        private final Set<EmotionAnalysisProvider> finished = new HashSet<>();
+        private final Set<EmotionAnalysisProvider> failed = new HashSet<>();
+        private EmotionAnalysisProvider leader;
+
+        private EarlyDecision(List<EmotionAnalysisProvider> providers, int quorum, double confidenceThreshold) {
+            this.providers = providers;
+            this.quorum = quorum;
+            this.confidenceThreshold = confidenceThreshold;
+            providers.forEach(provider -> cancellations.put(provider, Sinks.one()));
         }
 
-        selectedResponse.put("modelVersion", selectedModel); // Attach model version
-        return selectedResponse;
-    }
+        private Mono<Boolean> cancelled(EmotionAnalysisProvider provider) {
+            return cancellations.get(provider).asMono();
+        }
 
-    private double toDouble(Object value) {
-        if (value instanceof Number) {
-            return ((Number) value).doubleValue();
+        private synchronized void onPartial(EmotionAnalysisProvider provider, EmotionAnalysis partial) {
+            if (failed.contains(provider)) {
+                return;
+            }
+            confidences.put(provider, partial.confidenceRating());
+            decide();
         }
-        return 0.0; // Default value if null or not a number
-    }
 
+        private synchronized void onResult(EmotionAnalysisProvider provider) {
+            finished.add(provider);
+            if (provider == leader) {
+                cancelOthers();
+            }
+        }
 
+        private synchronized void onFailure(EmotionAnalysisProvider provider) {
+            failed.add(provider);
+            confidences.remove(provider);
+            if (provider == leader) {
+                logger.info("Race leader {} failed, deciding again among the other providers", provider.name());
+                leader = null;
+                decide();
+            }
+        }
 
-    private String createPrompt(String content, List<EmotionCategory> emotionCategories, List<WordEmotionAssociation> associations) {
-        // Build the list of emotions
-        String emotionsList = emotionCategories.stream()
-                .map(EmotionCategory::getEmotion)
-                .reduce((a, b) -> a + ", " + b)
-                .orElse("none");
-        // Filter associations to include only words that appear in the content
-        List<WordEmotionAssociation> filteredAssociations = associations.stream()
-                .filter(association -> {
-                    String word = association.getWord();
-                    // Check if the word is an emoji
-                    if (word.matches("\\p{So}|\\p{Cs}")) {
-                        return content.contains(word); // Match emoji directly
-                    }
-                    // Check if it's a full-word match (using word boundaries)
-                    return content.matches(".*\\b" + Pattern.quote(word) + "\\b.*");
-                })
-                .collect(Collectors.toList());
-        // Count emotions using the lexicon
-        Map<String, Integer> emotionCounts = analyzeTextWithLexicon(content, filteredAssociations);
-
-
-        // Convert emotion counts to string for prompt
-        String emotionCountsString = emotionCounts.entrySet().stream()
-                .map(entry -> entry.getKey() + ": " + entry.getValue())
-                .reduce((a, b) -> a + ", " + b)
-                .orElse("none");
-
-        // Build associated words for the prompt (words tied to emotions)
-        String associatedWordsString = filteredAssociations.stream()
-                .map(association -> association.getWord() + " (" + association.getEmotionCategory().getEmotion() + ")")
-                .reduce((a, b) -> a + ", " + b)
-                .orElse("none");
-
-        logger.info(associatedWordsString);
-
-        // Format the prompt for GPT
-        String format = "{\n" +
-                "  \"primaryEmotion\": {\n" +
-                "    \"emotion\": \"joy\",\n" +
-                "    \"percentage\": 40.50\n" +
-                "  },\n" +
-                "  \"secondaryEmotions\": [\n" +
-                "    {\n" +
-                "      \"emotion\": \"fear\",\n" +
-                "      \"percentage\": 30.50\n" +
-                "    },\n" +
-                "    {\n" +
-                "      \"emotion\": \"insecurity\",\n" +
-                "      \"percentage\": 29.00\n" +
-                "    }\n" +
-                "  ],\n" +
-                "  \"confidenceRating\": 75.24,\n" +
-                "  \"summary\": \"A String\",\n" +
-                "}";
-
-        // Include lexicon emotion counts, associated words, and the content in the prompt
-        return "Consider only the following emotions: [" + emotionsList + "] in the text: \"" + content + "\". "
-                + "The content contains the following emotion counts based on the lexicon: " + emotionCountsString + ". "
-                + "The following words are associated with emotions: " + associatedWordsString + ". "
-                + "Analyze and respond with a JSON object containing: primaryEmotion with its percentage, secondaryEmotions with their percentages, "
-                + "confidenceRating (out of 100.00), derived by predicting how likely the detected emotions are correct based on word usage patterns, emotion co-occurrence, and typical sentiment analysis results from similar texts,"
-                + "A summary providing a concise analysis of the emotional meaning of the text in a single String,"
-                + "Adhere strictly to this format: \"" + format +"\""
-                + "Your analysis should be the dominant result but keep to the format";
-    }
-
-
-    public Map<String, Integer> analyzeTextWithLexicon(String content, List<WordEmotionAssociation> associations) {
-        Map<String, Integer> emotionCounts = new HashMap<>();
-
-        // Initialize all emotions to 0
-        for (String emotion : associations.stream().map(association -> association.getEmotionCategory().getEmotion()).distinct().toList()) {
-            emotionCounts.put(emotion, 0);
-        }
-
-        // Tokenize input text (simple split by space)
-        String[] words = content.toLowerCase().split("\\W+");
-
-        // Check if each word is in the associations and update counts
-        for (String word : words) {
-            for (WordEmotionAssociation association : associations) {
-                if (word.contains(association.getWord().toLowerCase())) {
-                    String emotion = association.getEmotionCategory().getEmotion();
-                    emotionCounts.put(emotion, emotionCounts.getOrDefault(emotion, 0) + 1);
+        private void decide() {
+            // Providers that failed can no longer count towards the quorum
+            int needed = Math.max(1, Math.min(quorum, providers.size() - failed.size()));
+            if (leader != null || confidences.isEmpty() || (confidences.size() < needed
+                    && confidences.values().stream().noneMatch(confidence -> confidence >= confidenceThreshold))) {
+                return;
+            }
+            EmotionAnalysisProvider best = null;
+            for (EmotionAnalysisProvider candidate : providerRegistry.providers()) { // Ties go to the earlier provider
+                Double candidateConfidence = confidences.get(candidate);
+                if (candidateConfidence != null && (best == null
+                        || candidateConfidence * providerRegistry.weight(candidate) > confidences.get(best) * providerRegistry.weight(best))) {
+                    best = candidate;
                 }
             }
+            leader = best;
+            logger.info("Race decided early for {} (confidence ratings so far: {})", leader.name(),
+                    confidences.entrySet().stream().map(entry -> entry.getKey().name() + "=" + entry.getValue()).toList());
+            if (finished.contains(leader)) {
+                cancelOthers();
+            }
         }
 
-        return emotionCounts;
+        private void cancelOthers() {
+            providers.stream()
+                    .filter(other -> other != leader)
+                    .forEach(other -> cancellations.get(other).tryEmitValue(Boolean.TRUE));
+        }
     }
 
+    private <T> Mono<Map.Entry<EmotionAnalysisProvider, T>> callProvider(EmotionAnalysisProvider provider, Supplier<Mono<T>> call) {
+        // The bulkhead is outermost: a rejected call does not count against the provider's health, and retries keep their permit
+        return providerRegistry.isolate(provider, () -> providerResilience.call(provider.name(), call))
+                .map(result -> Map.entry(provider, result))
+                .onErrorResume(error -> {
+                    logger.warn("Provider {} failed, continuing without it: {}", provider.name(), error.getMessage());
+                    return Mono.empty();
+                });
+    }
 
+    private Mono<EmotionAnalysis> mergeRace(Flux<Map.Entry<EmotionAnalysisProvider, EmotionAnalysis>> results) {
+        return results.collectMap(result -> result.getKey(), result -> result.getValue())
+                .flatMap(responses -> responses.isEmpty()
+                        ? Mono.error(new RuntimeException("No emotion analysis provider responded within " + providerDeadline.toMillis() + " ms"))
+                        : Mono.just(mergeResponses(responses)));
+    }
 
-    private Mono<Map<String, Object>> callOpenAI(String prompt) {
-        Map<String, Object> requestBody = Map.of(
-                "model", "gpt-4o-mini",
-                "messages", List.of(Map.of("role", "user", "content", prompt)),
-                "max_tokens", 10000
-        );
+    // Batch analysis: short texts are packed into shared provider requests up to the token budget and the
+    // per-text results are fanned back out; results are returned in input order. A text no provider answered for
+    // gets the lexicon-only result (model version LEXICON_MODEL_VERSION) instead of failing the whole batch.
+    public Mono<List<EmotionAnalysis>> analyzeBatchWithModel(List<String> contents, String modelName) {
+        logger.info("Analyzing batch of {} texts with model '{}'", contents.size(), modelName);
+
+        return lexiconSnapshotService.getSnapshot(modelName)
+                .flatMap(lexicon -> Flux.fromIterable(contents)
+                        .concatMap(content -> analyzeTextWithLexicon(content, lexicon.scorer()))
+                        .collectList()
+                        .flatMap(scores -> analyzeBatch(contents, scores, lexicon)));
+    }
 
-        return webClient.post()
-                .uri("/chat/completions")
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .flatMap(this::processApiResponse)
-                .doOnError(error -> {
-                    if (error instanceof Throwable) {
-                        logger.error("Error calling OpenAI API: {}", ((Throwable) error).getMessage());
-                    } else {
-                        logger.error("Error calling OpenAI API: Unknown error");
+    private Mono<List<EmotionAnalysis>> analyzeBatch(List<String> contents, List<EmotionScores> scores, LexiconSnapshot lexicon) {
+        List<List<Integer>> packs = packByTokenBudget(contents, scores, lexicon);
+        logger.info("Packed {} texts into {} provider requests", contents.size(), packs.size());
+        return Flux.fromIterable(packs)
+                // Pacing is left to the providers' rate limiters, so packs go out as fast as the quotas allow
+                .flatMap(pack -> analyzePack(contents, scores, pack, lexicon), batchConcurrency)
+                .collectMap(result -> result.getKey(), result -> result.getValue())
+                .map(byIndex -> {
+                    List<EmotionAnalysis> results = new ArrayList<>(contents.size());
+                    for (int i = 0; i < contents.size(); i++) {
+                        results.add(byIndex.get(i));
                     }
-                });    }
+                    return results;
+                });
+    }
 
-    private Mono<Map<String, Object>> processApiResponse(Map<String, Object> response) {
-        logger.info("API Response: {}", response);
+    // Groups text indexes in input order so that every provider's batch prompt fits its budget uncut: each text is
+    // estimated from its compiled block (counts, word list and content), against the budget left by the batch
+    // instructions. A text that fills half of that on its own is analyzed alone.
+    private List<List<Integer>> packByTokenBudget(List<String> contents, List<EmotionScores> scores, LexiconSnapshot lexicon) {
+        int budget = batchTokenBudget;
+        for (EmotionAnalysisProvider provider : providerRegistry.providers()) {
+            budget = Math.min(budget, promptCompiler.tokenBudget(provider.name()));
+        }
+        int available = budget - promptCompiler.batchOverheadTokens(lexicon, batchMaxItems);
+
+        List<List<Integer>> packs = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        int tokens = 0;
+        for (int i = 0; i < contents.size(); i++) {
+            int estimate = promptCompiler.batchItemTokens(contents.get(i), lexicon, scores.get(i));
+            if (estimate * 2 > available) {
+                packs.add(List.of(i));
+                continue;
+            }
+            if (!current.isEmpty() && (tokens + estimate > available || current.size() >= batchMaxItems)) {
+                packs.add(current);
+                current = new ArrayList<>();
+                tokens = 0;
+            }
+            current.add(i);
+            tokens += estimate;
+        }
+        if (!current.isEmpty()) {
+            packs.add(current);
+        }
+        return packs;
+    }
 
-        List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
-        if (choices != null && !choices.isEmpty()) {
-            Map<String, Object> firstChoice = choices.get(0);
-            Map<String, Object> message = (Map<String, Object>) firstChoice.get("message");
-            String content = (String) message.get("content");
+    private Flux<Map.Entry<Integer, EmotionAnalysis>> analyzePack(List<String> contents, List<EmotionScores> scores, List<Integer> pack,
+                                                                  LexiconSnapshot lexicon) {
+        if (pack.size() == 1) {
+            int index = pack.get(0);
+            return withLexiconFallback(analyzeAlone(contents.get(index), lexicon, scores.get(index)), contents.get(index), lexicon)
+                    .map(result -> Map.entry(index, result))
+                    .flux();
+        }
+        List<String> packed = pack.stream().map(contents::get).toList();
+        List<EmotionScores> packedScores = pack.stream().map(scores::get).toList();
+        return raceProviders(batchPrompts(packed, lexicon, packedScores), BatchAnalysis.class)
+                .collectMap(result -> result.getKey(), result -> result.getValue())
+                .flatMapMany(responses -> Flux.range(0, pack.size())
+                        .concatMap(position -> {
+                            int index = pack.get(position);
+                            // Each provider's entry for this text; the most confident one wins as for a single text
+                            Map<EmotionAnalysisProvider, EmotionAnalysis> candidates = new LinkedHashMap<>();
+                            responses.forEach((provider, response) -> {
+                                EmotionAnalysis item = response.find(position + 1);
+                                if (item != null) {
+                                    candidates.put(provider, item);
+                                }
+                            });
+                            Mono<EmotionAnalysis> result = candidates.isEmpty()
+                                    ? withLexiconFallback(analyzeAlone(contents.get(index), lexicon, scores.get(index)), contents.get(index), lexicon) // Dropped by every provider
+                                    : Mono.just(mergeResponses(candidates));
+                            return result.map(merged -> Map.entry(index, merged));
+                        }))
+                // No provider answered for the pack (per-text steps fall back on their own; results are collected by index)
+                .onErrorResume(error -> {
+                    logger.warn("Pack of {} texts failed, using lexicon results: {}", pack.size(), error.getMessage());
+                    return Flux.fromIterable(pack)
+                            .concatMap(index -> lexiconResult(contents.get(index), lexicon).map(result -> Map.entry(index, result)));
+                });
+    }
 
-            if (content != null) {
-                content = content.trim();
-                if (content.startsWith("```json") && content.endsWith("```")) {
-                    content = content.substring(8, content.length() - 3).trim();
-                }
+    // Batch prompt for each provider within its token budget (and the batch budget); providers with the same budget
+    // share one compiled prompt
+    private Function<String, String> batchPrompts(List<String> contents, LexiconSnapshot lexicon, List<EmotionScores> scores) {
+        Map<Integer, String> byBudget = new ConcurrentHashMap<>();
+        return provider -> byBudget.computeIfAbsent(Math.min(batchTokenBudget, promptCompiler.tokenBudget(provider)),
+                budget -> promptCompiler.compileBatch(contents, lexicon, scores, budget));
+    }
+
+    private Mono<EmotionAnalysis> withLexiconFallback(Mono<EmotionAnalysis> analysis, String content, LexiconSnapshot lexicon) {
+        return analysis.onErrorResume(error -> {
+            logger.warn("Analysis failed, using lexicon result: {}", error.getMessage());
+            return lexiconResult(content, lexicon);
+        });
+    }
+
+    private Mono<EmotionAnalysis> lexiconResult(String content, LexiconSnapshot lexicon) {
+        return analyzeTextWithLexicon(content, lexicon.scorer()).map(this::toLexiconResult);
+    }
+
+    private Mono<EmotionAnalysis> analyzeAlone(String content, LexiconSnapshot lexicon) {
+        return prompts(content, lexicon).flatMap(prompts -> mergeRace(raceProviders(prompts, EmotionAnalysis.class)));
+    }
+
+    private Mono<EmotionAnalysis> analyzeAlone(String content, LexiconSnapshot lexicon, EmotionScores scores) {
+        return mergeRace(raceProviders(prompts(content, lexicon, scores), EmotionAnalysis.class));
+    }
+
+    // Lexicon counts of the content against the model's current snapshot; no remote calls
+    public Mono<Map<String, Object>> lexiconCounts(String content, String modelName) {
+        return lexiconSnapshotService.getSnapshot(modelName)
+                .flatMap(lexicon -> analyzeTextWithLexicon(content, lexicon.scorer()).map(scores -> {
+                    Map<String, Object> counts = new LinkedHashMap<>();
+                    counts.put("emotionCounts", scores.toCountMap());
+                    counts.put("tokens", scores.tokens());
+                    counts.put("matchedTokens", scores.matchedTokens());
+                    counts.put("lexiconVersion", Long.toHexString(lexicon.version()));
+                    return counts;
+                }));
+    }
+
+    private Map<String, Object> toProviderEvent(String modelVersion, EmotionAnalysis result) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("modelVersion", modelVersion);
+        event.put("analysis", result);
+        return event;
+    }
+
+    private EmotionAnalysis toLexiconResult(EmotionScores scores) {
+        double[] distribution = scores.distribution();
+        Integer[] ranked = new Integer[scores.emotionCount()];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = i;
+        }
+        Arrays.sort(ranked, (a, b) -> Integer.compare(scores.count(b), scores.count(a)));
 
-                try {
-                    ObjectMapper objectMapper = new ObjectMapper();
-                    return Mono.just(objectMapper.readValue(content, Map.class));
-                } catch (JsonProcessingException e) {
-                    return Mono.error(new RuntimeException("Error parsing JSON response: " + e.getMessage()));
+        EmotionAnalysis.Emotion primaryEmotion;
+        List<EmotionAnalysis.Emotion> secondaryEmotions = new ArrayList<>();
+        if (scores.total() == 0) {
+            primaryEmotion = new EmotionAnalysis.Emotion("neutral", 0.0);
+        } else {
+            primaryEmotion = new EmotionAnalysis.Emotion(scores.emotion(ranked[0]), round2(distribution[ranked[0]]));
+            for (int i = 1; i < ranked.length && secondaryEmotions.size() < MAX_LEXICON_SECONDARY_EMOTIONS; i++) {
+                if (scores.count(ranked[i]) == 0) {
+                    break;
                 }
-            } else {
-                return Mono.error(new RuntimeException("Response content is empty"));
+                secondaryEmotions.add(new EmotionAnalysis.Emotion(scores.emotion(ranked[i]), round2(distribution[ranked[i]])));
             }
-        } else {
-            return Mono.error(new RuntimeException("No choices found in API response"));
         }
+
+        String summary = "Lexicon analysis: " + scores.matchedTokens() + " of " + scores.tokens()
+                + " words carry an emotion in this model's lexicon.";
+        return new EmotionAnalysis(primaryEmotion, secondaryEmotions, lexiconConfidence(scores, distribution, ranked), summary,
+                LEXICON_MODEL_VERSION, null);
+    }
+
+    // Heuristic confidence: grows with the amount of lexical evidence and with how clearly the top emotion leads the runner-up
+    private double lexiconConfidence(EmotionScores scores, double[] distribution, Integer[] ranked) {
+        if (scores.total() == 0) {
+            return 0.0;
+        }
+        double evidence = 1.0 - Math.exp(-scores.matchedTokens() / 5.0);
+        double share = distribution[ranked[0]] / 100.0;
+        double margin = ranked.length > 1 ? share - distribution[ranked[1]] / 100.0 : share;
+        return round2(100.0 * evidence * (0.5 * share + 0.5 * margin));
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    // Picks the response with the highest weighted confidence; ties go to the earlier provider
+    private EmotionAnalysis mergeResponses(Map<EmotionAnalysisProvider, EmotionAnalysis> responses) {
+        logger.info("Analyzing confidence ratings for {}", responses.keySet().stream().map(EmotionAnalysisProvider::name).toList());
+
+        EmotionAnalysis selectedResponse = null;
+        EmotionAnalysisProvider selectedProvider = null;
+        double selectedScore = Double.NEGATIVE_INFINITY;
+        for (EmotionAnalysisProvider provider : providerRegistry.providers()) {
+            EmotionAnalysis response = responses.get(provider);
+            if (response == null) {
+                continue;
+            }
+            double score = response.confidenceRating() * providerRegistry.weight(provider);
+            logger.info("Confidence Rating - {}: {}", provider.modelVersion(), response.confidenceRating());
+            if (score > selectedScore) {
+                selectedResponse = response;
+                selectedProvider = provider;
+                selectedScore = score;
+            }
+        }
+
+        return selectedResponse.withModelVersion(selectedProvider.modelVersion()); // Attach model version
+    }
+
+    // Single pass over the content; one hash lookup per token into the model's scorer, inline on the calling thread.
+    // Large documents (PDF/DOCX uploads) are split at whitespace and scored on the fork-join pool; the caller waits
+    // for the pool, so that path runs on boundedElastic rather than on an event-loop thread.
+    public Mono<EmotionScores> analyzeTextWithLexicon(String content, EmotionScorer scorer) {
+        if (content.length() < parallelScoringThreshold) {
+            return Mono.fromSupplier(() -> scorer.score(content));
+        }
+        return Mono.fromCallable(() -> scorer.score(content, parallelScoringThreshold, parallelScoringChunkSize))
+                .subscribeOn(Schedulers.boundedElastic());
     }
 }
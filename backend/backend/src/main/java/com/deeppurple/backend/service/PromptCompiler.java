@@ -0,0 +1,236 @@
+package com.deeppurple.backend.service;
+
+import com.deeppurple.backend.lexicon.EmotionScores;
+import com.deeppurple.backend.lexicon.LexiconSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds the analysis prompts sent to the providers.
+ * <p>
+ * Everything that only depends on the model (emotion list, instructions, response format) is compiled once per
+ * emotion set and placed first, so consecutive requests share a byte-identical prefix that providers can
+ * cache. The per-request part follows: nonzero lexicon counts, the matched lexicon words (each listed once with
+ * all its emotions, capped) and the content. Prompts are kept within a token budget, estimated at
+ * {@value #CHARS_PER_TOKEN} chars per token and configurable per provider; the content has priority over the
+ * word list and is cut in the middle when it does not fit on its own. Batch prompts apply the same rules per text,
+ * after sharing the budget among the texts (short texts keep their full size, the rest split what remains).
+ */
+@Component
+public class PromptCompiler {
+    public static final int CHARS_PER_TOKEN = 4; // Rough estimate for English text
+    private static final String TRUNCATION_MARKER = " [...] ";
+
+    // Expected shape of one analysis result, quoted in the prompts
+    private static final String RESPONSE_FORMAT = "{\n" +
+            "  \"primaryEmotion\": {\n" +
+            "    \"emotion\": \"joy\",\n" +
+            "    \"percentage\": 40.50\n" +
+            "  },\n" +
+            "  \"secondaryEmotions\": [\n" +
+            "    {\n" +
+            "      \"emotion\": \"fear\",\n" +
+            "      \"percentage\": 30.50\n" +
+            "    },\n" +
+            "    {\n" +
+            "      \"emotion\": \"insecurity\",\n" +
+            "      \"percentage\": 29.00\n" +
+            "    }\n" +
+            "  ],\n" +
+            "  \"confidenceRating\": 75.24,\n" +
+            "  \"summary\": \"A String\",\n" +
+            "}";
+
+    private static final String ANALYSIS_INSTRUCTIONS = "primaryEmotion with its percentage, secondaryEmotions with their percentages, "
+            + "confidenceRating (out of 100.00), derived by predicting how likely the detected emotions are correct based on word usage patterns, emotion co-occurrence, and typical sentiment analysis results from similar texts, "
+            + "and a summary providing a concise analysis of the emotional meaning of the text in a single String";
+
+    private record Prefixes(List<String> emotions, String single, String batch) {
+    }
+
+    private final Environment environment;
+    private final int defaultTokenBudget;
+    private final int maxAssociations;
+    private final Map<String, Prefixes> prefixes = new ConcurrentHashMap<>(); // model name -> static prompt parts
+
+    public PromptCompiler(Environment environment,
+                          @Value("${analysis.prompt.token-budget:8000}") int defaultTokenBudget,
+                          @Value("${analysis.prompt.max-associations:60}") int maxAssociations) {
+        this.environment = environment;
+        this.defaultTokenBudget = defaultTokenBudget;
+        this.maxAssociations = maxAssociations;
+    }
+
+    public static int estimateTokens(CharSequence text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /** Prompt token budget of a provider ({@code analysis.prompt.providers.<name>.token-budget}). */
+    public int tokenBudget(String provider) {
+        return environment.getProperty("analysis.prompt.providers." + provider + ".token-budget", Integer.class, defaultTokenBudget);
+    }
+
+    public String compile(String content, LexiconSnapshot lexicon, EmotionScores scores, int tokenBudget) {
+        StringBuilder prompt = new StringBuilder(prefixes(lexicon).single());
+        appendText(prompt, content, lexicon, scores, tokenBudget * CHARS_PER_TOKEN - prompt.length());
+        return prompt.toString();
+    }
+
+    // Several texts in one request; the response is {"results": [{"id": n, ...format fields}, ...]}
+    public String compileBatch(List<String> contents, LexiconSnapshot lexicon, List<EmotionScores> scores, int tokenBudget) {
+        StringBuilder prompt = new StringBuilder(prefixes(lexicon).batch());
+        appendBatchHeader(prompt, contents.size());
+
+        // Each text's block as it would be without a limit; if they do not all fit, the shortest keep their size
+        // and the longer ones share what remains equally
+        int[] natural = new int[contents.size()];
+        Integer[] bySize = new Integer[contents.size()];
+        for (int i = 0; i < contents.size(); i++) {
+            natural[i] = batchItemChars(i, contents.get(i), lexicon, scores.get(i));
+            bySize[i] = i;
+        }
+        Arrays.sort(bySize, Comparator.comparingInt(i -> natural[i]));
+        int[] allowed = new int[contents.size()];
+        int remaining = tokenBudget * CHARS_PER_TOKEN - prompt.length();
+        for (int rank = 0; rank < bySize.length; rank++) {
+            int i = bySize[rank];
+            allowed[i] = Math.min(natural[i], Math.max(0, remaining) / (bySize.length - rank));
+            remaining -= allowed[i];
+        }
+
+        for (int i = 0; i < contents.size(); i++) {
+            appendBatchItem(prompt, i, contents.get(i), lexicon, scores.get(i), allowed[i] == natural[i] ? Integer.MAX_VALUE : allowed[i]);
+        }
+        return prompt.toString();
+    }
+
+    /** Estimated tokens of the batch prompt around its texts: instructions and the header for {@code count} texts. */
+    public int batchOverheadTokens(LexiconSnapshot lexicon, int count) {
+        StringBuilder prompt = new StringBuilder(prefixes(lexicon).batch());
+        appendBatchHeader(prompt, count);
+        return estimateTokens(prompt);
+    }
+
+    /** Estimated tokens of one text's block in a batch prompt when nothing has to be cut. */
+    public int batchItemTokens(String content, LexiconSnapshot lexicon, EmotionScores scores) {
+        // Numbered with the widest possible id, so the estimate never falls short of the block's actual size
+        return (batchItemChars(Integer.MAX_VALUE - 1, content, lexicon, scores) + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    private static void appendBatchHeader(StringBuilder prompt, int count) {
+        prompt.append("There are ").append(count).append(" texts.\n");
+    }
+
+    private int batchItemChars(int index, String content, LexiconSnapshot lexicon, EmotionScores scores) {
+        StringBuilder item = new StringBuilder();
+        appendBatchItem(item, index, content, lexicon, scores, Integer.MAX_VALUE);
+        return item.length();
+    }
+
+    private void appendBatchItem(StringBuilder prompt, int index, String content, LexiconSnapshot lexicon, EmotionScores scores,
+                                 int maxChars) {
+        int start = prompt.length();
+        prompt.append("Text ").append(index + 1).append(":\n");
+        appendText(prompt, content, lexicon, scores, maxChars == Integer.MAX_VALUE ? maxChars : maxChars - (prompt.length() - start) - 1);
+        prompt.append('\n');
+    }
+
+    // Counts, word list and content of one text within maxChars; the content is reserved first and the word list
+    // gets whatever remains, then the content is cut in the middle if it still does not fit
+    private void appendText(StringBuilder prompt, String content, LexiconSnapshot lexicon, EmotionScores scores, int maxChars) {
+        int start = prompt.length();
+        appendCounts(prompt, scores);
+        if (maxChars == Integer.MAX_VALUE) {
+            appendAssociations(prompt, content, lexicon, Integer.MAX_VALUE);
+            prompt.append("Text: \"").append(content).append('"');
+            return;
+        }
+
+        int contentChars = content.length() + 4 * CHARS_PER_TOKEN;
+        appendAssociations(prompt, content, lexicon, maxChars - (prompt.length() - start) - contentChars);
+
+        prompt.append("Text: \"").append(fit(content, maxChars - (prompt.length() - start) - 16)).append('"');
+    }
+
+    private Prefixes prefixes(LexiconSnapshot lexicon) {
+        Prefixes current = prefixes.get(lexicon.modelName());
+        if (current != null && current.emotions().equals(lexicon.emotions())) {
+            return current;
+        }
+        String emotions = String.join(", ", lexicon.emotions());
+        String single = "You analyze the emotions expressed in a text. Consider only the following emotions: [" + emotions + "]. "
+                + "The text is preceded by its emotion counts based on the lexicon and by the words in it that the lexicon associates with emotions. "
+                + "Analyze and respond with a JSON object containing: " + ANALYSIS_INSTRUCTIONS + ". "
+                + "Adhere strictly to this format: \"" + RESPONSE_FORMAT + "\" "
+                + "Your analysis should be the dominant result but keep to the format.\n\n";
+        String batch = "You analyze the emotions expressed in several texts, each independently of the others. "
+                + "Consider only the following emotions: [" + emotions + "]. "
+                + "Each text is preceded by its emotion counts based on the lexicon and by the words in it that the lexicon associates with emotions. "
+                + "For every text, determine " + ANALYSIS_INSTRUCTIONS + ". "
+                + "Respond with a single JSON object {\"results\": [...]} containing exactly one entry per text, in order, "
+                + "each with an \"id\" field holding the text number and otherwise adhering strictly to this format: \"" + RESPONSE_FORMAT + "\"\n\n";
+        Prefixes compiled = new Prefixes(lexicon.emotions(), single, batch);
+        prefixes.put(lexicon.modelName(), compiled);
+        return compiled;
+    }
+
+    private static void appendCounts(StringBuilder prompt, EmotionScores scores) {
+        prompt.append("Emotion counts based on the lexicon: ");
+        int listed = 0;
+        for (int i = 0; i < scores.emotionCount(); i++) {
+            if (scores.count(i) > 0) {
+                prompt.append(listed++ == 0 ? "" : ", ").append(scores.emotion(i)).append(": ").append(scores.count(i));
+            }
+        }
+        prompt.append(listed == 0 ? "none.\n" : ".\n");
+    }
+
+    // Each matched word once, with all its emotions, in lexicon order; stops at the cap or the char limit
+    private void appendAssociations(StringBuilder prompt, String content, LexiconSnapshot lexicon, int maxChars) {
+        int start = prompt.length();
+        prompt.append("Words associated with emotions: ");
+        BitSet matchedWords = lexicon.matcher().findAll(content);
+        int listed = 0;
+        for (int id = matchedWords.nextSetBit(0); id >= 0 && listed < maxAssociations; id = matchedWords.nextSetBit(id + 1)) {
+            int mark = prompt.length();
+            prompt.append(listed == 0 ? "" : ", ").append(lexicon.word(id)).append(" (");
+            int[] ordinals = lexicon.ordinalsOf(id);
+            for (int i = 0; i < ordinals.length; i++) {
+                prompt.append(i == 0 ? "" : ", ").append(lexicon.emotions().get(ordinals[i]));
+            }
+            prompt.append(')');
+            if (prompt.length() - start > maxChars) {
+                prompt.setLength(mark);
+                break;
+            }
+            listed++;
+        }
+        prompt.append(listed == 0 ? "none.\n" : ".\n");
+    }
+
+    // Keeps the beginning and the end of content that is longer than maxChars
+    private static String fit(String content, int maxChars) {
+        if (content.length() <= maxChars) {
+            return content;
+        }
+        int keep = Math.max(0, maxChars - TRUNCATION_MARKER.length());
+        int head = keep / 2;
+        int tail = keep - head;
+        // Do not split a surrogate pair
+        if (head > 0 && Character.isHighSurrogate(content.charAt(head - 1))) {
+            head--;
+        }
+        if (tail > 0 && Character.isLowSurrogate(content.charAt(content.length() - tail))) {
+            tail--;
+        }
+        return content.substring(0, head) + TRUNCATION_MARKER + content.substring(content.length() - tail);
+    }
+}
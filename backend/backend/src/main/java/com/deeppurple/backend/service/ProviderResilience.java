@@ -0,0 +1,205 @@
+package com.deeppurple.backend.service;
+
+import com.deeppurple.backend.config.ProviderRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Health tracking, circuit breaking and retries for the emotion analysis providers.
+ * <p>
+ * Every call updates an exponentially weighted moving average of the provider's latency and error rate. When the
+ * error rate crosses the threshold (after a minimum number of calls) the provider's circuit opens and it receives
+ * no traffic for the open duration; the next call is then let through as a single probe that closes the circuit on
+ * success or reopens it on failure. Throttling, server errors, timeouts and connection failures are retried with
+ * full-jitter exponential backoff, or after the provider's {@code Retry-After} when it sends one.
+ */
+@Component
+public class ProviderResilience {
+    private static final Logger logger = LoggerFactory.getLogger(ProviderResilience.class);
+
+    private enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    private final double alpha;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final Duration openDuration;
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final Duration maxRetryAfter;
+    private final Map<String, Health> health = new ConcurrentHashMap<>();
+
+    public ProviderResilience(@Value("${analysis.providers.health.ewma-alpha:0.2}") double alpha,
+                              @Value("${analysis.providers.breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                              @Value("${analysis.providers.breaker.minimum-calls:5}") int minimumCalls,
+                              @Value("${analysis.providers.breaker.open-duration:30s}") Duration openDuration,
+                              @Value("${analysis.providers.retry.max-retries:2}") int maxRetries,
+                              @Value("${analysis.providers.retry.min-backoff:200ms}") Duration minBackoff,
+                              @Value("${analysis.providers.retry.max-backoff:2s}") Duration maxBackoff,
+                              @Value("${analysis.providers.retry.max-retry-after:5s}") Duration maxRetryAfter) {
+        this.alpha = alpha;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.openDuration = openDuration;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxRetryAfter = maxRetryAfter;
+    }
+
+    /**
+     * Providers that may currently take traffic, fastest and healthiest first, at most {@code limit} of them.
+     * Providers without history rank by their given order.
+     */
+    public List<String> route(Collection<String> providers, int limit) {
+        return providers.stream()
+                .filter(provider -> health(provider).available())
+                .sorted(Comparator.comparingDouble(provider -> health(provider).cost()))
+                .limit(limit)
+                .toList();
+    }
+
+    /** Runs the call through the provider's circuit breaker, recording its outcome and retrying transient failures. */
+    public <T> Mono<T> call(String provider, Supplier<Mono<T>> call) {
+        Health providerHealth = health(provider);
+        return Mono.defer(() -> {
+                    if (!providerHealth.tryAcquire()) {
+                        return Mono.error(new RuntimeException("Circuit open for provider " + provider));
+                    }
+                    long started = System.nanoTime();
+                    return call.get()
+                            .doOnSuccess(result -> providerHealth.record(true, System.nanoTime() - started))
+                            .doOnError(error -> providerHealth.record(false, System.nanoTime() - started))
+                            .doOnCancel(providerHealth::release);
+                })
+                .retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                    Throwable error = signal.failure();
+                    if (signal.totalRetries() >= maxRetries || !isRetryable(error) || !providerHealth.available()) {
+                        return Mono.error(error);
+                    }
+                    Duration delay = retryAfter(error);
+                    if (delay == null) {
+                        delay = backoff(signal.totalRetries());
+                    } else if (delay.compareTo(maxRetryAfter) > 0) {
+                        return Mono.error(error); // Throttled for longer than a request can wait
+                    }
+                    logger.info("Retrying provider {} in {} ms after: {}", provider, delay.toMillis(), error.getMessage());
+                    return Mono.delay(delay);
+                })));
+    }
+
+    private Health health(String provider) {
+        return health.computeIfAbsent(provider, Health::new);
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().value() == 429 || response.getStatusCode().is5xxServerError();
+        }
+        return error instanceof WebClientRequestException || error instanceof TimeoutException;
+    }
+
+    // Full jitter: uniform in [0, min(maxBackoff, minBackoff * 2^attempt)]
+    private Duration backoff(long attempt) {
+        long cap = Math.min(maxBackoff.toMillis(), minBackoff.toMillis() << Math.min(attempt, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    private static Duration retryAfter(Throwable error) {
+        if (!(error instanceof WebClientResponseException response)) {
+            return null;
+        }
+        String value = response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        return value == null || value.isBlank() ? null : ProviderRateLimiter.parseRetryAfter(value);
+    }
+
+    private final class Health {
+        private final String provider;
+        private double latencyMillis = -1; // EWMA, -1 until the first call completes
+        private double errorRate;           // EWMA of 0 (success) / 1 (failure)
+        private int calls;
+        private CircuitState state = CircuitState.CLOSED;
+        private long openedAt;
+        private boolean probeInFlight;
+
+        private Health(String provider) {
+            this.provider = provider;
+        }
+
+        synchronized boolean available() {
+            return state == CircuitState.CLOSED
+                    || (state == CircuitState.OPEN && System.nanoTime() - openedAt >= openDuration.toNanos())
+                    || (state == CircuitState.HALF_OPEN && !probeInFlight);
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == CircuitState.OPEN && System.nanoTime() - openedAt >= openDuration.toNanos()) {
+                state = CircuitState.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == CircuitState.CLOSED) {
+                return true;
+            }
+            if (state == CircuitState.HALF_OPEN && !probeInFlight) {
+                probeInFlight = true;
+                return true;
+            }
+            return false;
+        }
+
+        // A cancelled probe (the race finished without it) lets the next call probe instead
+        synchronized void release() {
+            probeInFlight = false;
+        }
+
+        synchronized void record(boolean success, long elapsedNanos) {
+            double millis = elapsedNanos / 1_000_000.0;
+            latencyMillis = latencyMillis < 0 ? millis : latencyMillis + alpha * (millis - latencyMillis);
+            errorRate += alpha * ((success ? 0.0 : 1.0) - errorRate);
+            calls++;
+
+            if (state == CircuitState.HALF_OPEN) {
+                probeInFlight = false;
+                if (success) {
+                    state = CircuitState.CLOSED;
+                    errorRate = 0.0;
+                    calls = 0;
+                    logger.info("Circuit closed for provider {}", provider);
+                } else {
+                    open();
+                }
+            } else if (state == CircuitState.CLOSED && calls >= minimumCalls && errorRate >= failureRateThreshold) {
+                open();
+            }
+        }
+
+        private void open() {
+            state = CircuitState.OPEN;
+            openedAt = System.nanoTime();
+            logger.warn("Circuit opened for provider {} (error rate {}, latency {} ms)", provider,
+                    String.format("%.2f", errorRate), Math.round(latencyMillis));
+        }
+
+        // Expected latency inflated by the error rate; unknown providers cost nothing so they get tried
+        synchronized double cost() {
+            return latencyMillis < 0 ? 0.0 : latencyMillis * (1.0 + 4.0 * errorRate);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.deeppurple.backend.service;
+
+import com.deeppurple.backend.config.ProviderJson;
+import com.deeppurple.backend.dto.EmotionAnalysis;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Incremental parser for an analysis JSON object that a provider streams as text deltas.
+ * <p>
+ * Deltas are fed to Jackson's non-blocking parser as they arrive and its tokens are buffered, so the result is
+ * bound to its record as soon as the closing brace streams in (trailing Markdown fences are never waited for). Text
+ * before the first {@code '{'}, such as a {@code ```json} fence, is skipped. Once {@code primaryEmotion} is closed
+ * and {@code confidenceRating} has been read, both are reported to the partial-result callback, usually long
+ * before the summary has finished streaming.
+ */
+public final class StreamingAnalysisParser<T> {
+    private final JsonParser parser;
+    private final TokenBuffer tokens;
+    private final ObjectReader reader;
+    private final Consumer<EmotionAnalysis> onPartial;
+    private int depth;
+    private boolean started;
+    private boolean complete;
+    private String rootField;
+    private String primaryField;
+    private String primaryEmotion;
+    private double primaryPercentage;
+    private boolean primaryEmotionClosed;
+    private Double confidenceRating;
+    private boolean partialReported;
+    private String pendingHighSurrogate = ""; // A delta may end between the two halves of a surrogate pair
+
+    public StreamingAnalysisParser(Class<T> type, Consumer<EmotionAnalysis> onPartial) {
+        try {
+            this.parser = ProviderJson.MAPPER.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create non-blocking JSON parser", e);
+        }
+        this.tokens = new TokenBuffer(parser, null);
+        this.reader = ProviderJson.MAPPER.readerFor(type);
+        this.onPartial = onPartial;
+    }
+
+    /** Parses the concatenated deltas; completes as soon as the JSON object is closed and cancels the rest of the stream. */
+    public static <T> Mono<T> parse(Flux<String> deltas, Class<T> type, Consumer<EmotionAnalysis> onPartial) {
+        return Mono.defer(() -> {
+            StreamingAnalysisParser<T> parser = new StreamingAnalysisParser<>(type, onPartial);
+            return deltas.<Boolean>handle((delta, sink) -> {
+                        try {
+                            sink.next(parser.feed(delta));
+                        } catch (IOException e) {
+                            sink.error(new RuntimeException("Error parsing streamed JSON response: " + e.getMessage(), e));
+                        }
+                    })
+                    .takeUntil(complete -> complete)
+                    .then(Mono.fromCallable(parser::result));
+        });
+    }
+
+    /** Text delta of an OpenAI-compatible chat completion chunk (OpenAI, Mistral); empty for role-only chunks. */
+    public static String chatCompletionDelta(String data) {
+        return ProviderJson.<ProviderJson.ChatCompletion>read(data, ProviderJson.CHAT_COMPLETION).content();
+    }
+
+    /** Text delta of a Gemini {@code streamGenerateContent} chunk. */
+    public static String geminiDelta(String data) {
+        return ProviderJson.<ProviderJson.GeminiResponse>read(data, ProviderJson.GEMINI_RESPONSE).text();
+    }
+
+    /** Feeds the next delta and returns whether the JSON object is complete. */
+    public boolean feed(String delta) throws IOException {
+        if (complete || delta.isEmpty()) {
+            return complete;
+        }
+        if (!started) {
+            int brace = delta.indexOf('{');
+            if (brace < 0) {
+                return false;
+            }
+            started = true;
+            delta = delta.substring(brace);
+        }
+        delta = pendingHighSurrogate + delta;
+        if (Character.isHighSurrogate(delta.charAt(delta.length() - 1))) {
+            pendingHighSurrogate = delta.substring(delta.length() - 1);
+            delta = delta.substring(0, delta.length() - 1);
+        } else {
+            pendingHighSurrogate = "";
+        }
+        byte[] bytes = delta.getBytes(StandardCharsets.UTF_8);
+        ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+
+        JsonToken token;
+        while (!complete && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            tokens.copyCurrentEvent(parser);
+            track(token);
+        }
+        return complete;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public T result() throws IOException {
+        if (!complete) {
+            throw new RuntimeException("Streamed response ended before the JSON object was complete");
+        }
+        try (JsonParser buffered = tokens.asParser(ProviderJson.MAPPER)) {
+            return reader.readValue(buffered);
+        }
+    }
+
+    // Follows the root fields so primaryEmotion and confidenceRating are known before the object is complete
+    private void track(JsonToken token) throws IOException {
+        if (token.isStructStart()) {
+            depth++;
+            return;
+        }
+        if (token.isStructEnd()) {
+            depth--;
+            if (depth == 0) {
+                complete = true;
+                parser.getNonBlockingInputFeeder().endOfInput();
+            } else if (depth == 1 && "primaryEmotion".equals(rootField)) {
+                primaryEmotionClosed = true;
+                reportPartial();
+            }
+            return;
+        }
+        if (token == JsonToken.FIELD_NAME) {
+            if (depth == 1) {
+                rootField = parser.currentName();
+            } else if (depth == 2 && "primaryEmotion".equals(rootField)) {
+                primaryField = parser.currentName();
+            }
+            return;
+        }
+        if (depth == 1 && "confidenceRating".equals(rootField)) {
+            confidenceRating = number(token);
+            reportPartial();
+        } else if (depth == 2 && "primaryEmotion".equals(rootField)) {
+            if ("emotion".equals(primaryField)) {
+                primaryEmotion = parser.getText();
+            } else if ("percentage".equals(primaryField)) {
+                primaryPercentage = number(token);
+            }
+        }
+    }
+
+    private double number(JsonToken token) throws IOException {
+        if (token.isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        try {
+            return token == JsonToken.VALUE_STRING ? ProviderJson.parseLenient(parser.getText()) : 0.0;
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    private void reportPartial() {
+        if (partialReported || !primaryEmotionClosed || confidenceRating == null) {
+            return;
+        }
+        partialReported = true;
+        onPartial.accept(new EmotionAnalysis(new EmotionAnalysis.Emotion(primaryEmotion, primaryPercentage), List.of(),
+                confidenceRating, null, null, null));
+    }
+}
@@ -16,6 +16,9 @@ public class WordEmotionAssociationService {
     @Autowired
     private EmotionCategoryRepository emotionCategoryRepository;
 
+    @Autowired
+    private LexiconSnapshotService lexiconSnapshotService;
+
     public WordEmotionAssociation associateWordWithEmotion(String word, Long emotionCategoryId) {
         EmotionCategory category = emotionCategoryRepository.findById(emotionCategoryId)
                 .orElseThrow(() -> new RuntimeException("Emotion category not found"));
@@ -28,7 +31,9 @@ public class WordEmotionAssociationService {
         association.setWord(word);
         association.setEmotionCategory(category);
 
-        return wordEmotionAssociationRepository.save(association);
+        WordEmotionAssociation saved = wordEmotionAssociationRepository.save(association);
+        lexiconSnapshotService.refresh(category.getModel().getId());
+        return saved;
     }
 
     public void deleteWordEmotionAssociation(Long id) {
@@ -39,6 +44,7 @@ public class WordEmotionAssociationService {
             throw new RuntimeException("Cannot delete predefined words");
         }
         wordEmotionAssociationRepository.deleteById(id);
+        lexiconSnapshotService.refresh(word.getEmotionCategory().getModel().getId());
     }
 }
 
@@ -0,0 +1,113 @@
+package com.deeppurple.backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProviderRateLimiterTest {
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+    private static final double TOLERANCE = 1_000; // Nanoseconds of floating-point drift in the refill maths
+
+    private final long[] now = {0};
+
+    // One token per second
+    private ProviderRateLimiter.TokenBucket bucket(int burst, Duration maxWait) {
+        return new ProviderRateLimiter.TokenBucket("test", 60, burst, maxWait, () -> now[0]);
+    }
+
+    @Test
+    void parsesResetDurations() {
+        assertEquals(Duration.ofSeconds(1), ProviderRateLimiter.parseResetDuration("1s"));
+        assertEquals(Duration.ofMinutes(6), ProviderRateLimiter.parseResetDuration("6m0s"));
+        assertEquals(Duration.ofMillis(250), ProviderRateLimiter.parseResetDuration("250ms"));
+        assertEquals(Duration.ofMillis(1500), ProviderRateLimiter.parseResetDuration(" 1.5s "));
+        assertEquals(Duration.ofSeconds(3723), ProviderRateLimiter.parseResetDuration("1h2m3s"));
+        assertNull(ProviderRateLimiter.parseResetDuration("soon"));
+        assertNull(ProviderRateLimiter.parseResetDuration(""));
+    }
+
+    @Test
+    void parsesRetryAfterSeconds() {
+        assertEquals(Duration.ofSeconds(2), ProviderRateLimiter.parseRetryAfter("2"));
+        assertEquals(Duration.ZERO, ProviderRateLimiter.parseRetryAfter("-5"));
+        assertNull(ProviderRateLimiter.parseRetryAfter("later"));
+    }
+
+    @Test
+    void spacesRequestsOnceTheBurstIsUsed() {
+        ProviderRateLimiter.TokenBucket bucket = bucket(2, Duration.ofSeconds(30));
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(SECOND, bucket.reserve(), TOLERANCE);
+        assertEquals(2 * SECOND, bucket.reserve(), TOLERANCE);
+    }
+
+    @Test
+    void refillsAtTheConfiguredRateUpToTheBurst() {
+        ProviderRateLimiter.TokenBucket bucket = bucket(2, Duration.ofSeconds(30));
+        bucket.reserve();
+        bucket.reserve();
+
+        now[0] += SECOND;
+        assertEquals(0, bucket.reserve(), TOLERANCE);
+        assertEquals(SECOND, bucket.reserve(), TOLERANCE);
+
+        now[0] += Duration.ofMinutes(10).toNanos(); // Long idle: back to the burst, not more
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(SECOND, bucket.reserve(), TOLERANCE);
+    }
+
+    @Test
+    void rejectsWaitsOverTheMaximumWithoutTakingAToken() {
+        ProviderRateLimiter.TokenBucket bucket = bucket(1, Duration.ofMillis(1500));
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(SECOND, bucket.reserve(), TOLERANCE);
+        assertEquals(-1, bucket.reserve());
+
+        now[0] += SECOND;
+        assertEquals(SECOND, bucket.reserve(), TOLERANCE);
+    }
+
+    @Test
+    void refundedTokenShortensTheNextWait() {
+        ProviderRateLimiter.TokenBucket bucket = bucket(1, Duration.ofSeconds(30));
+        bucket.reserve();
+        bucket.reserve();
+
+        bucket.refund();
+
+        assertEquals(SECOND, bucket.reserve(), TOLERANCE);
+    }
+
+    @Test
+    void cancelledWaitGivesItsTokenBack() {
+        ProviderRateLimiter.TokenBucket bucket = bucket(1, Duration.ofSeconds(30));
+        bucket.reserve();
+        Disposable waiting = bucket.acquire().subscribe(); // Waits for the slot one second out
+
+        waiting.dispose();
+
+        assertEquals(SECOND, bucket.reserve(), TOLERANCE);
+    }
+
+    @Test
+    void pausesUntilTheProviderQuotaResets() {
+        ProviderRateLimiter.TokenBucket bucket = bucket(10, Duration.ofSeconds(30));
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("x-ratelimit-remaining-requests", "0");
+        headers.add("x-ratelimit-reset-requests", "6s");
+
+        bucket.update(HttpStatusCode.valueOf(200), headers);
+
+        assertEquals(6 * SECOND, bucket.reserve(), TOLERANCE);
+    }
+}
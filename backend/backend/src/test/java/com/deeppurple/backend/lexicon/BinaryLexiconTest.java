@@ -0,0 +1,154 @@
+package com.deeppurple.backend.lexicon;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryLexiconTest {
+
+    private static BinaryLexicon compile(Map<String, List<String>> lexicon) throws IOException {
+        return new BinaryLexicon(ByteBuffer.wrap(LexiconCompiler.compile(lexicon)));
+    }
+
+    private static boolean contains(BinaryLexicon lexicon, String word) {
+        return lexicon.contains(word, 0, word.length());
+    }
+
+    // Offset of the first entry: magic, version, emotion names, word count, block count, block offsets
+    private static int firstEntryOffset(ByteBuffer buffer) {
+        int position = 8;
+        int emotionCount = buffer.getInt(position);
+        position += 4;
+        for (int i = 0; i < emotionCount; i++) {
+            position += 2 + Short.toUnsignedInt(buffer.getShort(position));
+        }
+        return buffer.getInt(position + 8);
+    }
+
+    @Test
+    void roundTripsWordsAndEmotions() throws IOException {
+        Map<String, List<String>> source = new LinkedHashMap<>();
+        source.put("Joy", List.of("joy"));
+        source.put("abandon", List.of("fear", "sadness"));
+        source.put("joy", List.of("trust"));
+        source.put("😀", List.of("joy"));
+        BinaryLexicon lexicon = compile(source);
+
+        // Ordinals in order of first appearance; words lower-cased, merged and sorted
+        assertEquals(List.of("joy", "fear", "sadness", "trust"), lexicon.emotions());
+        assertEquals(3, lexicon.wordCount());
+        List<String> decoded = new ArrayList<>();
+        lexicon.forEach((word, ordinals) -> decoded.add(word + List.of(ordinals[0], ordinals.length > 1 ? ordinals[1] : -1)));
+        assertEquals(List.of("abandon[1, 2]", "joy[0, 3]", "😀[0, -1]"), decoded);
+    }
+
+    @Test
+    void compilesFromJson() throws IOException {
+        byte[] json = "{\"calm\": [\"trust\"], \"angry\": [\"anger\", \"disgust\"]}".getBytes(StandardCharsets.UTF_8);
+        BinaryLexicon lexicon = new BinaryLexicon(ByteBuffer.wrap(LexiconCompiler.compile(new ByteArrayInputStream(json))));
+
+        assertEquals(List.of("trust", "anger", "disgust"), lexicon.emotions());
+        assertArrayEquals(new int[]{1, 2}, lexicon.lookup("angry", 0, 5));
+    }
+
+    @Test
+    void frontCodesWordsWithinABlock() throws IOException {
+        Map<String, List<String>> source = new LinkedHashMap<>();
+        source.put("happy", List.of("joy"));
+        source.put("happiness", List.of("joy"));
+        ByteBuffer buffer = ByteBuffer.wrap(LexiconCompiler.compile(source));
+
+        // "happiness" is the block head and is stored in full; "happy" shares "happ" with it
+        int first = firstEntryOffset(buffer);
+        assertEquals(0, buffer.get(first));
+        assertEquals(9, buffer.get(first + 1));
+        int second = first + 2 + 2 * 9 + 2;
+        assertEquals(4, buffer.get(second));
+        assertEquals(1, buffer.get(second + 1));
+        assertEquals('y', buffer.getChar(second + 2));
+        assertTrue(contains(new BinaryLexicon(buffer), "happy"));
+    }
+
+    @Test
+    void findsHitsAndRejectsMisses() throws IOException {
+        BinaryLexicon lexicon = compile(Map.of("happy", List.of("joy"), "happiness", List.of("joy"), "sad", List.of("sadness")));
+
+        assertTrue(contains(lexicon, "happy"));
+        assertTrue(contains(lexicon, "HaPPy"));
+        assertTrue(lexicon.contains("so sad today", 3, 6));
+        assertArrayEquals(new int[]{lexicon.emotions().indexOf("sadness")}, lexicon.lookup("sad", 0, 3)); // Map.of order is unspecified
+
+        assertFalse(contains(lexicon, "happ"));    // Prefix of an entry
+        assertFalse(contains(lexicon, "happys"));  // Entry is a prefix of it
+        assertFalse(contains(lexicon, "happinesss"));
+        assertFalse(contains(lexicon, ""));
+        assertFalse(contains(lexicon, "aaa"));     // Before the first entry
+        assertFalse(contains(lexicon, "zzz"));     // After the last entry
+        assertArrayEquals(new int[0], lexicon.lookup("glad", 0, 4));
+    }
+
+    @Test
+    void findsFirstAndLastEntries() throws IOException {
+        BinaryLexicon lexicon = compile(Map.of("aardvark", List.of("joy"), "middle", List.of("joy"), "zest", List.of("joy")));
+
+        assertTrue(contains(lexicon, "aardvark"));
+        assertTrue(contains(lexicon, "zest"));
+        assertFalse(contains(lexicon, "a"));
+        assertFalse(contains(lexicon, "zesty"));
+    }
+
+    @Test
+    void findsEveryEntryAcrossBlockBoundaries() throws IOException {
+        int count = 3 * LexiconCompiler.BLOCK_SIZE + 1; // Three full blocks and a one-entry block
+        Map<String, List<String>> source = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            source.put(String.format("word%03d", i), List.of(i % 2 == 0 ? "joy" : "fear"));
+        }
+        BinaryLexicon lexicon = compile(source);
+
+        assertEquals(count, lexicon.wordCount());
+        for (int i = 0; i < count; i++) {
+            String word = String.format("word%03d", i);
+            assertTrue(contains(lexicon, word), word);
+            assertArrayEquals(new int[]{i % 2}, lexicon.lookup(word, 0, word.length()));
+            assertFalse(contains(lexicon, word + "x"), word + "x");
+        }
+        int[] visited = new int[1];
+        lexicon.forEach((word, ordinals) -> assertEquals(String.format("word%03d", visited[0]++), word));
+        assertEquals(count, visited[0]);
+    }
+
+    @Test
+    void opensMappedFile() throws IOException {
+        Path file = Files.createTempFile("lexicon", ".bin");
+        try {
+            Files.write(file, LexiconCompiler.compile(Map.of("calm", List.of("trust"))));
+            BinaryLexicon lexicon = BinaryLexicon.open(file);
+            assertTrue(contains(lexicon, "calm"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void rejectsOtherData() {
+        assertThrows(IllegalArgumentException.class, () -> new BinaryLexicon(ByteBuffer.wrap(new byte[16])));
+        assertThrows(IllegalArgumentException.class,
+                () -> LexiconCompiler.main(new String[]{"only-input.json"}));
+    }
+}
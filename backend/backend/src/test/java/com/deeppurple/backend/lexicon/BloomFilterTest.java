@@ -0,0 +1,73 @@
+package com.deeppurple.backend.lexicon;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void sizesBitsAndHashesForTheTargetRate() {
+        // m = -n ln p / (ln 2)^2, k = m / n ln 2
+        BloomFilter filter = BloomFilter.create(1000, 0.01);
+        assertEquals(9586, filter.bitCount());
+        assertEquals(7, filter.hashCount());
+        assertEquals(1000, filter.capacity());
+
+        BloomFilter strict = BloomFilter.create(100_000, 0.001);
+        assertEquals(1_437_759, strict.bitCount());
+        assertEquals(10, strict.hashCount());
+    }
+
+    @Test
+    void clampsDegenerateArguments() {
+        BloomFilter tiny = BloomFilter.create(0, 0.01);
+        assertEquals(1, tiny.capacity());
+        assertEquals(64, tiny.bitCount());
+        assertTrue(tiny.hashCount() >= 1);
+
+        assertEquals(BloomFilter.create(10, 0.5).bitCount(), BloomFilter.create(10, 0.9).bitCount()); // Rate capped at 0.5
+    }
+
+    @Test
+    void neverMissesAnAddedWord() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("word" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("word" + i), "word" + i);
+        }
+        assertEquals(10_000, filter.size());
+    }
+
+    @Test
+    void keepsFalsePositivesNearTheConfiguredRateAtCapacity() {
+        int n = 10_000;
+        BloomFilter filter = BloomFilter.create(n, 0.01);
+        for (int i = 0; i < n; i++) {
+            filter.add("neutral-" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.015, "false positive rate " + rate);
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+
+        assertFalse(filter.mightContain("anything"));
+        assertFalse(filter.mightContain(""));
+    }
+}
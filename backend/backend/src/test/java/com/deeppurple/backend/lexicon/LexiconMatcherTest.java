@@ -0,0 +1,76 @@
+package com.deeppurple.backend.lexicon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LexiconMatcherTest {
+
+    // "patternId:start-end" for every reported match, in report order
+    private static List<String> matches(LexiconMatcher matcher, String text) {
+        List<String> found = new ArrayList<>();
+        matcher.forEachMatch(text, (id, start, end) -> found.add(id + ":" + start + "-" + end));
+        return found;
+    }
+
+    @Test
+    void wordsOnlyMatchOnWordBoundaries() {
+        LexiconMatcher matcher = new LexiconMatcher(List.of("love"));
+
+        assertEquals(List.of("0:0-4"), matches(matcher, "love"));
+        assertEquals(List.of("0:2-6"), matches(matcher, "I love it"));
+        assertEquals(List.of("0:4-8"), matches(matcher, "(so love!)"));
+        assertTrue(matches(matcher, "glove lovely beloved love_ love2").isEmpty());
+    }
+
+    @Test
+    void reportsOverlappingAndNestedEntries() {
+        LexiconMatcher matcher = new LexiconMatcher(List.of("new york", "york", "york city"));
+
+        assertEquals(List.of("0:0-8", "1:4-8", "2:4-13"), matches(matcher, "new york city"));
+        assertEquals(List.of("1:0-4"), matches(matcher, "york"));
+    }
+
+    @Test
+    void followsFailureLinksAcrossPartialMatches() {
+        LexiconMatcher matcher = new LexiconMatcher(List.of(":-)", "-)", ":-(", ":-))"));
+
+        assertEquals(List.of("0:0-3", "1:1-3", "3:0-4"), matches(matcher, ":-))"));
+        assertEquals(List.of("2:2-5"), matches(matcher, ":-:-("));
+    }
+
+    @Test
+    void foldsCaseOfContentAndEntries() {
+        LexiconMatcher matcher = new LexiconMatcher(List.of("Happy", "sad"));
+
+        assertEquals(List.of("0:0-5", "1:6-9"), matches(matcher, "HAPPY SaD"));
+    }
+
+    @Test
+    void entriesThatFoldToTheSameTextShareTheFirstId() {
+        LexiconMatcher matcher = new LexiconMatcher(List.of("joy", "JOY"));
+
+        assertEquals(List.of("0:0-3"), matches(matcher, "Joy"));
+    }
+
+    @Test
+    void emojiAndEmoticonsMatchWithoutWordBoundaries() {
+        LexiconMatcher matcher = new LexiconMatcher(List.of("😀", ":)", "love"));
+
+        // Emoji is a surrogate pair; offsets are in chars
+        assertEquals(List.of("0:3-5", "1:8-10"), matches(matcher, "wow😀wow:)"));
+        assertEquals(List.of("2:0-4", "0:4-6"), matches(matcher, "love😀"));
+    }
+
+    @Test
+    void findAllReturnsDistinctIds() {
+        LexiconMatcher matcher = new LexiconMatcher(List.of("joy", "fear", "anger"));
+
+        assertEquals("{0, 2}", matcher.findAll("joy, joy and ANGER").toString());
+        assertTrue(matcher.findAll("").isEmpty());
+    }
+}
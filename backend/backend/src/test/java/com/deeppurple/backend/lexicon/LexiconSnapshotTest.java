@@ -0,0 +1,52 @@
+package com.deeppurple.backend.lexicon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LexiconSnapshotTest {
+
+    private static LexiconSnapshot.Builder builder() {
+        LexiconSnapshot.Builder builder = LexiconSnapshot.builder(1L, "test");
+        builder.emotion("joy", 10);
+        builder.emotion("sadness", 11);
+        return builder.add("happy", "joy").add("tears", "sadness");
+    }
+
+    @Test
+    void learnedAssociationsChangeTheVersionButNotTheCuratedVersion() {
+        LexiconSnapshot curated = builder().build();
+        LexiconSnapshot learned = curated.withAssociations(Map.of("yay", new int[]{0}));
+
+        assertTrue(learned.containsWord("yay", 0, 3));
+        assertNotEquals(curated.version(), learned.version());
+        assertEquals(curated.curatedVersion(), learned.curatedVersion());
+        assertEquals(curated.curatedVersion(), learned.withAssociations(Map.of("boo", new int[]{1})).curatedVersion());
+    }
+
+    @Test
+    void reloadedLearnedRowsKeepTheCuratedVersion() {
+        LexiconSnapshot learnedInMemory = builder().build().withAssociations(Map.of("yay", new int[]{0}));
+        LexiconSnapshot reloaded = builder().addLearned("yay", "joy").build();
+
+        assertEquals(learnedInMemory.version(), reloaded.version());
+        assertEquals(learnedInMemory.curatedVersion(), reloaded.curatedVersion());
+    }
+
+    @Test
+    void curatedChangesMoveTheCuratedVersion() {
+        long base = builder().build().curatedVersion();
+
+        assertNotEquals(base, builder().add("glad", "joy").build().curatedVersion());
+        assertNotEquals(base, builder().add("happy", "sadness").build().curatedVersion());
+        LexiconSnapshot.Builder renamed = LexiconSnapshot.builder(1L, "test");
+        renamed.emotion("joy", 10);
+        renamed.emotion("sorrow", 11);
+        assertNotEquals(base, renamed.add("happy", "joy").add("tears", "sorrow").build().curatedVersion());
+        assertEquals(base, builder().build().curatedVersion()); // Stable across rebuilds
+    }
+}
@@ -0,0 +1,83 @@
+package com.deeppurple.backend.lexicon;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenPrefilterTest {
+    private static final TokenPrefilter PREFILTER = TokenPrefilter.of(List.of("the", "and", "Because"), 2);
+
+    private static boolean candidate(TokenPrefilter prefilter, String token) {
+        return prefilter.isCandidate(token, 0, token.length(), false);
+    }
+
+    @Test
+    void dropsStopWordsIgnoringCase() {
+        assertFalse(candidate(PREFILTER, "the"));
+        assertFalse(candidate(PREFILTER, "THE"));
+        assertFalse(candidate(PREFILTER, "because"));
+        assertTrue(candidate(PREFILTER, "theme"));
+        assertTrue(candidate(PREFILTER, "joy"));
+    }
+
+    @Test
+    void checksTheTokenSpanOnly() {
+        String text = "and then the end";
+
+        assertFalse(PREFILTER.isCandidate(text, 0, 3, false));
+        assertTrue(PREFILTER.isCandidate(text, 4, 8, false));
+        assertFalse(PREFILTER.isCandidate(text, 9, 12, false));
+    }
+
+    @Test
+    void dropsNumeralsWithOrdinalAndPluralSuffixes() {
+        for (String numeral : List.of("42", "1st", "22nd", "3rd", "4TH", "1990s", "1_000")) {
+            assertFalse(candidate(PREFILTER, numeral), numeral);
+        }
+        for (String word : List.of("2nite", "3d", "h2o", "b4", "4ever")) {
+            assertTrue(candidate(PREFILTER, word), word);
+        }
+    }
+
+    @Test
+    void dropsTokensShorterThanTheMinimumInCodePoints() {
+        assertFalse(candidate(PREFILTER, "x"));
+        assertFalse(candidate(PREFILTER, "𝒳")); // One code point, two chars
+        assertTrue(candidate(PREFILTER, "ok"));
+        assertTrue(candidate(PREFILTER, "né"));
+
+        TokenPrefilter longer = TokenPrefilter.of(List.of(), 4);
+        assertFalse(candidate(longer, "sad"));
+        assertTrue(candidate(longer, "glad"));
+        assertTrue(candidate(TokenPrefilter.of(List.of(), 0), "x")); // Minimum clamped to one
+    }
+
+    @Test
+    void letsEmojiThrough() {
+        TokenPrefilter strict = TokenPrefilter.of(List.of("😀"), 3);
+
+        assertTrue(strict.isCandidate("😀", 0, 2, true));
+        assertFalse(strict.isCandidate("😀", 0, 2, false));
+    }
+
+    @Test
+    void countsDistinctStopWords() {
+        assertEquals(2, TokenPrefilter.of(List.of("The", "the", "a"), 2).stopWordCount());
+    }
+
+    @Test
+    void readsWordListsSkippingCommentsAndBlankLines() throws IOException {
+        String list = "# English stop words\n\nthe\n  and  \n#not a word\nbecause\n";
+
+        List<String> words = TokenPrefilter.readWords(new ByteArrayInputStream(list.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of("the", "and", "because"), words);
+    }
+}
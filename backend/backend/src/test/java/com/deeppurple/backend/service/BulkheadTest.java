@@ -0,0 +1,91 @@
+package com.deeppurple.backend.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(1);
+
+    @Test
+    void rejectsCallsOnceThePermitsAndQueueAreTaken() {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 1);
+        Disposable running = bulkhead.call(Mono::never).subscribe();
+        Disposable queued = bulkhead.call(Mono::never).subscribe();
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> bulkhead.call(() -> Mono.just("late")).block(TIMEOUT));
+        assertTrue(error.getMessage().startsWith("Bulkhead full for provider test"));
+
+        running.dispose();
+        queued.dispose();
+    }
+
+    @Test
+    void handsThePermitToTheNextWaiterInOrder() {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 2);
+        Sinks.One<String> first = Sinks.one();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+        Mono<String> firstCall = bulkhead.call(first::asMono).cache();
+        firstCall.subscribe();
+        Mono<String> secondCall = bulkhead.call(() -> {
+            secondStarted.set(true);
+            return Mono.just("second");
+        }).cache();
+        secondCall.subscribe();
+
+        assertFalse(secondStarted.get());
+        first.tryEmitValue("first");
+        assertEquals("first", firstCall.block(TIMEOUT));
+        assertEquals("second", secondCall.block(TIMEOUT));
+        assertTrue(secondStarted.get());
+    }
+
+    @Test
+    void releasesThePermitWhenTheCallFails() {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 0);
+
+        assertThrows(IllegalStateException.class,
+                () -> bulkhead.call(() -> Mono.error(new IllegalStateException("provider down"))).block(TIMEOUT));
+        assertEquals("next", bulkhead.call(() -> Mono.just("next")).block(TIMEOUT));
+    }
+
+    @Test
+    void releasesThePermitWhenTheCallIsCancelled() {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 0);
+        Disposable running = bulkhead.call(Mono::never).subscribe();
+
+        running.dispose();
+
+        assertEquals("next", bulkhead.call(() -> Mono.just("next")).block(TIMEOUT));
+    }
+
+    @Test
+    void cancelledWaiterGivesUpItsQueueSlot() {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 1);
+        Sinks.One<String> first = Sinks.one();
+        Mono<String> firstCall = bulkhead.call(first::asMono).cache();
+        firstCall.subscribe();
+        AtomicBoolean cancelledStarted = new AtomicBoolean();
+        Disposable waiting = bulkhead.call(() -> {
+            cancelledStarted.set(true);
+            return Mono.just("cancelled");
+        }).subscribe();
+
+        waiting.dispose();
+        Mono<String> nextCall = bulkhead.call(() -> Mono.just("next")).cache();
+        nextCall.subscribe(); // Takes the freed queue slot instead of being rejected
+        first.tryEmitValue("first");
+
+        assertEquals("next", nextCall.block(TIMEOUT));
+        assertFalse(cancelledStarted.get());
+    }
+}
@@ -0,0 +1,130 @@
+package com.deeppurple.backend.service;
+
+import com.deeppurple.backend.dto.EmotionAnalysis;
+import com.deeppurple.backend.lexicon.LexiconSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OpenAIServiceTest {
+
+    // Streams one partial at once, then answers (or fails, without a result) after the delay
+    private static final class FakeProvider implements EmotionAnalysisProvider {
+        private final String name;
+        private final EmotionAnalysis partial;
+        private final EmotionAnalysis result;
+        private final Duration delay;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final List<String> prompts = new CopyOnWriteArrayList<>();
+
+        private FakeProvider(String name, double partialConfidence, EmotionAnalysis result, Duration delay) {
+            this.name = name;
+            this.partial = analysis("joy", partialConfidence);
+            this.result = result;
+            this.delay = delay;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String modelVersion() {
+            return name + "-v1";
+        }
+
+        @Override
+        public <T> Mono<T> analyze(String prompt, Class<T> type, Consumer<EmotionAnalysis> onPartial) {
+            prompts.add(prompt);
+            Mono<EmotionAnalysis> answer = result == null
+                    ? Mono.error(new RuntimeException(name + " stream broke off"))
+                    : Mono.just(result);
+            return Mono.fromRunnable(() -> onPartial.accept(partial))
+                    .then(Mono.delay(delay))
+                    .then(answer)
+                    .doOnCancel(() -> cancelled.set(true))
+                    .map(type::cast);
+        }
+    }
+
+    private static EmotionAnalysis analysis(String emotion, double confidence) {
+        return new EmotionAnalysis(new EmotionAnalysis.Emotion(emotion, 80), List.of(), confidence, "summary", null, null);
+    }
+
+    private static OpenAIService service(EmotionAnalysisProvider... providers) {
+        return service(new MockEnvironment(), providers);
+    }
+
+    private static OpenAIService service(MockEnvironment environment, EmotionAnalysisProvider... providers) {
+        LexiconSnapshot.Builder lexicon = LexiconSnapshot.builder(1L, "test");
+        lexicon.emotion("joy", 1);
+        lexicon.emotion("sadness", 2);
+        lexicon.add("miss", "sadness");
+        LexiconSnapshotService lexiconSnapshotService = mock(LexiconSnapshotService.class);
+        when(lexiconSnapshotService.getSnapshot("test")).thenReturn(Mono.just(lexicon.build()));
+
+        AnalysisProviderRegistry registry = new AnalysisProviderRegistry(List.of(providers), environment, 16, 64);
+        ProviderResilience resilience = new ProviderResilience(0.2, 0.5, 5, Duration.ofSeconds(30), 0,
+                Duration.ofMillis(200), Duration.ofSeconds(2), Duration.ofSeconds(5));
+        PromptCompiler promptCompiler = new PromptCompiler(environment, 8000, 60);
+        return new OpenAIService(lexiconSnapshotService, registry, resilience, promptCompiler,
+                262144, 65536, 2, Duration.ofSeconds(5), 90, 3, 6000, 20, 4);
+    }
+
+    @Test
+    void leaderThatFailsAfterConfidentPartialsHandsTheRaceToTheOthers() {
+        FakeProvider leader = new FakeProvider("alpha", 95, null, Duration.ofMillis(50));
+        FakeProvider other = new FakeProvider("beta", 60, analysis("sadness", 60), Duration.ofMillis(150));
+
+        EmotionAnalysis result = service(leader, other).analyzeEmotionWithModel("I miss you", "test").block(Duration.ofSeconds(5));
+
+        assertEquals("sadness", result.primaryEmotion().emotion());
+        assertEquals("beta-v1", result.modelVersion());
+        assertFalse(other.cancelled.get());
+    }
+
+    @Test
+    void othersAreCancelledOnceTheLeaderHasAnswered() {
+        FakeProvider leader = new FakeProvider("alpha", 95, analysis("joy", 80), Duration.ofMillis(50));
+        FakeProvider other = new FakeProvider("beta", 60, analysis("sadness", 60), Duration.ofSeconds(3));
+
+        long started = System.nanoTime();
+        EmotionAnalysis result = service(leader, other).analyzeEmotionWithModel("I miss you", "test").block(Duration.ofSeconds(5));
+
+        assertEquals("alpha-v1", result.modelVersion());
+        assertTrue(other.cancelled.get());
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).compareTo(Duration.ofSeconds(2)) < 0);
+    }
+
+    @Test
+    void batchPromptsStayWithinTheProviderBudgetWithoutCuttingTexts() {
+        FakeProvider provider = new FakeProvider("alpha", 50, null, Duration.ZERO);
+        MockEnvironment environment = new MockEnvironment().withProperty("analysis.prompt.providers.alpha.token-budget", "800");
+        List<String> contents = Collections.nCopies(10, "I miss you ".repeat(27));
+
+        List<EmotionAnalysis> results = service(environment, provider).analyzeBatchWithModel(contents, "test").block(Duration.ofSeconds(5));
+
+        assertEquals(10, results.size());
+        results.forEach(result -> assertEquals(OpenAIService.LEXICON_MODEL_VERSION, result.modelVersion()));
+        assertFalse(provider.prompts.isEmpty());
+        assertTrue(provider.prompts.stream().anyMatch(prompt -> prompt.contains("There are ")));
+        for (String prompt : provider.prompts) {
+            assertTrue(PromptCompiler.estimateTokens(prompt) <= 800);
+            assertFalse(prompt.contains(" [...] "));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.deeppurple.backend.service;
+
+import com.deeppurple.backend.lexicon.EmotionScores;
+import com.deeppurple.backend.lexicon.LexiconSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptCompilerTest {
+
+    private final PromptCompiler promptCompiler = new PromptCompiler(
+            new MockEnvironment().withProperty("analysis.prompt.providers.small.token-budget", "1000"), 8000, 60);
+
+    private static LexiconSnapshot lexicon() {
+        LexiconSnapshot.Builder builder = LexiconSnapshot.builder(1L, "test");
+        builder.emotion("joy", 10);
+        builder.emotion("sadness", 11);
+        return builder.add("happy", "joy").add("tears", "sadness").build();
+    }
+
+    private static List<EmotionScores> scores(LexiconSnapshot lexicon, List<String> contents) {
+        return contents.stream().map(content -> lexicon.scorer().score(content)).toList();
+    }
+
+    @Test
+    void batchWithinTheBudgetIsNotCut() {
+        LexiconSnapshot lexicon = lexicon();
+        List<String> contents = List.of("happy day", "tears again");
+
+        String prompt = promptCompiler.compileBatch(contents, lexicon, scores(lexicon, contents), 8000);
+
+        assertTrue(prompt.contains("Text 1:\n"));
+        assertTrue(prompt.contains("Text: \"happy day\""));
+        assertTrue(prompt.contains("happy (joy)"));
+        assertTrue(prompt.contains("Text: \"tears again\""));
+        assertFalse(prompt.contains(" [...] "));
+        int estimate = promptCompiler.batchOverheadTokens(lexicon, contents.size())
+                + promptCompiler.batchItemTokens(contents.get(0), lexicon, scores(lexicon, contents).get(0))
+                + promptCompiler.batchItemTokens(contents.get(1), lexicon, scores(lexicon, contents).get(1));
+        assertTrue(PromptCompiler.estimateTokens(prompt) <= estimate);
+    }
+
+    @Test
+    void oversizedBatchIsCutToTheBudgetAndShortTextsAreKept() {
+        LexiconSnapshot lexicon = lexicon();
+        List<String> contents = List.of("happy " + "x".repeat(10_000) + " tears", "tears of joy", "y".repeat(10_000));
+
+        String prompt = promptCompiler.compileBatch(contents, lexicon, scores(lexicon, contents), 2000);
+
+        assertTrue(PromptCompiler.estimateTokens(prompt) <= 2000);
+        assertTrue(prompt.contains("Text: \"tears of joy\""));
+        assertTrue(prompt.contains("Text 3:\n"));
+        assertTrue(prompt.contains("Text: \"happy x"));
+        assertTrue(prompt.contains("x tears\""));
+        assertEquals(2, prompt.split(" \\[\\.\\.\\.] ", -1).length - 1);
+    }
+
+    @Test
+    void batchAssociationsAreCapped() {
+        LexiconSnapshot.Builder builder = LexiconSnapshot.builder(1L, "test");
+        builder.emotion("joy", 10);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.add("word" + i, "joy");
+            content.append("word").append(i).append(' ');
+        }
+        LexiconSnapshot lexicon = builder.build();
+        PromptCompiler capped = new PromptCompiler(new MockEnvironment(), 8000, 5);
+        List<String> contents = List.of(content.toString());
+
+        String prompt = capped.compileBatch(contents, lexicon, scores(lexicon, contents), 8000);
+
+        assertEquals(5, prompt.split("\\(joy\\)", -1).length - 1);
+    }
+
+    @Test
+    void singlePromptIsCutToTheProviderBudget() {
+        LexiconSnapshot lexicon = lexicon();
+        String content = "happy " + "z".repeat(20_000);
+        int budget = promptCompiler.tokenBudget("small");
+
+        String prompt = promptCompiler.compile(content, lexicon, lexicon.scorer().score(content), budget);
+
+        assertEquals(1000, budget);
+        assertEquals(8000, promptCompiler.tokenBudget("other"));
+        assertTrue(PromptCompiler.estimateTokens(prompt) <= budget);
+        assertTrue(prompt.contains("Text: \"happy z"));
+        assertTrue(prompt.contains(" [...] "));
+    }
+}
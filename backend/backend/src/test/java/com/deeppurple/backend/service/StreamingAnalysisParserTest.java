@@ -0,0 +1,90 @@
+package com.deeppurple.backend.service;
+
+import com.deeppurple.backend.dto.EmotionAnalysis;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingAnalysisParserTest {
+    private static final String JSON = "{\"primaryEmotion\": {\"emotion\": \"joy\", \"percentage\": 72.5}, "
+            + "\"secondaryEmotions\": [{\"emotion\": \"trust\", \"percentage\": 20}], "
+            + "\"confidenceRating\": 88, \"summary\": \"Happy about the trip 😀 to Norway\"}";
+    private static final EmotionAnalysis PARTIAL = new EmotionAnalysis(new EmotionAnalysis.Emotion("joy", 72.5), List.of(),
+            88, null, null, null);
+
+    private static EmotionAnalysis parse(List<String> deltas, List<EmotionAnalysis> partials) throws Exception {
+        StreamingAnalysisParser<EmotionAnalysis> parser = new StreamingAnalysisParser<>(EmotionAnalysis.class, partials::add);
+        for (String delta : deltas) {
+            parser.feed(delta);
+        }
+        assertTrue(parser.isComplete());
+        return parser.result();
+    }
+
+    @Test
+    void parsesTheObjectWhateverTheDeltaBoundaries() throws Exception {
+        EmotionAnalysis expected = parse(List.of(JSON), new ArrayList<>());
+        assertEquals("joy", expected.primaryEmotion().emotion());
+        assertEquals(88.0, expected.confidenceRating());
+        assertEquals("Happy about the trip 😀 to Norway", expected.summary());
+
+        // Every split point: inside field names, numbers, strings and between the halves of the emoji's surrogate pair
+        for (int split = 1; split < JSON.length(); split++) {
+            List<EmotionAnalysis> partials = new ArrayList<>();
+            EmotionAnalysis result = parse(List.of(JSON.substring(0, split), JSON.substring(split)), partials);
+            assertEquals(expected, result, "split at " + split);
+            assertEquals(List.of(PARTIAL), partials, "split at " + split);
+        }
+    }
+
+    @Test
+    void parsesCharByCharDeltas() throws Exception {
+        List<String> deltas = new ArrayList<>();
+        for (int i = 0; i < JSON.length(); i++) {
+            deltas.add(JSON.substring(i, i + 1));
+        }
+        List<EmotionAnalysis> partials = new ArrayList<>();
+
+        assertEquals(parse(List.of(JSON), new ArrayList<>()), parse(deltas, partials));
+        assertEquals(List.of(PARTIAL), partials);
+    }
+
+    @Test
+    void reportsThePartialBeforeTheSummaryHasStreamed() throws Exception {
+        List<EmotionAnalysis> partials = new ArrayList<>();
+        StreamingAnalysisParser<EmotionAnalysis> parser = new StreamingAnalysisParser<>(EmotionAnalysis.class, partials::add);
+        int summary = JSON.indexOf("\"summary\"");
+
+        assertFalse(parser.feed(JSON.substring(0, summary + 15)));
+        assertEquals(List.of(PARTIAL), partials);
+        assertTrue(parser.feed(JSON.substring(summary + 15)));
+        assertEquals(1, partials.size());
+    }
+
+    @Test
+    void skipsMarkdownFences() throws Exception {
+        StreamingAnalysisParser<EmotionAnalysis> parser = new StreamingAnalysisParser<>(EmotionAnalysis.class, partial -> {
+        });
+
+        assertFalse(parser.feed("```"));
+        assertFalse(parser.feed("json\n"));
+        assertTrue(parser.feed(JSON + "\n```"));
+        assertTrue(parser.feed("trailing text is ignored"));
+        assertEquals("joy", parser.result().primaryEmotion().emotion());
+    }
+
+    @Test
+    void rejectsAnIncompleteObject() throws Exception {
+        StreamingAnalysisParser<EmotionAnalysis> parser = new StreamingAnalysisParser<>(EmotionAnalysis.class, partial -> {
+        });
+
+        assertFalse(parser.feed(JSON.substring(0, JSON.length() - 1)));
+        assertThrows(RuntimeException.class, parser::result);
+    }
+}